@@ -2,6 +2,7 @@ package net.entsvideoplayer;
 
 import net.entsvideoplayer.api.CutSceneCommand;
 import net.entsvideoplayer.network.PlayCutscenePayload;
+import net.entsvideoplayer.network.PlayPlaylistPayload;
 import net.fabricmc.api.ModInitializer;
 import net.fabricmc.fabric.api.networking.v1.PayloadTypeRegistry;
 
@@ -20,6 +21,10 @@ public class EntsVideoPlayer implements ModInitializer {
 			PlayCutscenePayload.ID,
 			PlayCutscenePayload.CODEC
 		);
+		PayloadTypeRegistry.playS2C().register(
+			PlayPlaylistPayload.ID,
+			PlayPlaylistPayload.CODEC
+		);
 
 		CutSceneCommand.register();
 
@@ -3,7 +3,7 @@ package net.entsvideoplayer;
 import org.lwjgl.glfw.GLFW;
 
 import net.entsvideoplayer.api.CutsceneManager;
-import net.entsvideoplayer.client.FFmpegNativeLoader;
+import net.entsvideoplayer.client.FFmpegBootstrap;
 import net.entsvideoplayer.network.CutsceneNetworkClient;
 import net.fabricmc.api.ClientModInitializer;
 import net.fabricmc.fabric.api.client.event.lifecycle.v1.ClientTickEvents;
@@ -16,14 +16,10 @@ public class EntsVideoPlayerClient implements ClientModInitializer {
 
     @Override
     public void onInitializeClient() {
+        long startNanos = System.nanoTime();
 
-        FFmpegNativeLoader loader = new FFmpegNativeLoader();
-    
-        if (loader.loadSync()) {
-            EntsVideoPlayer.LOGGER.info("FFmpeg loaded successfully");
-        } else {
-            EntsVideoPlayer.LOGGER.error("Failed to load FFmpeg - some features may not work");
-        }
+        // Downloads and native extraction happen off the main thread; cutscenes wait for them
+        FFmpegBootstrap.start();
 
         skipKeyBinding = KeyBindingHelper.registerKeyBinding(new KeyBinding(
             "key.entcutscene.skip",
@@ -41,6 +37,8 @@ public class EntsVideoPlayerClient implements ClientModInitializer {
         });
 
         CutsceneNetworkClient.registerReceiver();
+        EntsVideoPlayer.LOGGER.info("Client initialized in {} ms (FFmpeg loading in the background)",
+            (System.nanoTime() - startNanos) / 1_000_000L);
     }
     
 }
@@ -1,8 +1,12 @@
 package net.entsvideoplayer.api;
 
 import java.util.Collection;
+import java.util.function.ToIntFunction;
 
+import com.mojang.brigadier.arguments.IntegerArgumentType;
 import com.mojang.brigadier.arguments.StringArgumentType;
+import com.mojang.brigadier.builder.ArgumentBuilder;
+import com.mojang.brigadier.context.CommandContext;
 import com.mojang.brigadier.suggestion.SuggestionProvider;
 
 import net.entsvideoplayer.network.CutsceneNetworkServer;
@@ -25,36 +29,11 @@ public class CutSceneCommand {
                 CommandManager.literal("playcutscene")
                     .requires(source -> source.hasPermissionLevel(2))
                     .then(CommandManager.argument("target", EntityArgumentType.players())
-                        .then(CommandManager.argument("type", StringArgumentType.word())
-                            .suggests(TYPE_SUGGESTIONS)
-                            .then(CommandManager.argument("file", StringArgumentType.greedyString())
-                                .executes(context -> {
-                                    Collection<ServerPlayerEntity> targets = EntityArgumentType.getPlayers(context, "target");
-                                    String type = StringArgumentType.getString(context, "type").toLowerCase();
-                                    String file = StringArgumentType.getString(context, "file");
-
-                                    //boolean isURL = type.equals("url");
-                                    int typePath;
-                                    if (type.equals("url")) typePath = 0;
-                                    else if (type.equals("local")) typePath = 1;
-                                    else typePath = 2;
-
-                                    String videoPath = file.replace("\"", "");
-
-                                    // Send to all targeted players
-                                    int count = 0;
-                                    for (ServerPlayerEntity player : targets) {
-                                        sendCutsceneToPlayer(player, videoPath, typePath);
-                                        count++;
-                                    }
-
-                                    final int finalCount = count;
-                                    context.getSource().sendFeedback(
-                                        () -> Text.literal("Cutscene sent to " + finalCount + " player(s): " + videoPath), 
-                                        false
-                                    );
-                                    return count;
-                                })
+                        .then(typeAndFile(context -> 0))
+                        // playcutscene <target> spread <ms> <type> <file>: clients fetch within a jittered window
+                        .then(CommandManager.literal("spread")
+                            .then(CommandManager.argument("spreadMs", IntegerArgumentType.integer(0, 60000))
+                                .then(typeAndFile(context -> IntegerArgumentType.getInteger(context, "spreadMs")))
                             )
                         )
                     )
@@ -62,10 +41,34 @@ public class CutSceneCommand {
         });
     }
 
-    private static void sendCutsceneToPlayer(ServerPlayerEntity player, String videoPath, int type) {
-        // Always send packet to client - works for both singleplayer and multiplayer
-        // The packet will be received on the client side regardless of environment
-        CutsceneNetworkServer.sendCutscene(player, videoPath, type, true, true);
+    private static ArgumentBuilder<ServerCommandSource, ?> typeAndFile(ToIntFunction<CommandContext<ServerCommandSource>> spreadMs) {
+        return CommandManager.argument("type", StringArgumentType.word())
+            .suggests(TYPE_SUGGESTIONS)
+            .then(CommandManager.argument("file", StringArgumentType.greedyString())
+                .executes(context -> {
+                    Collection<ServerPlayerEntity> targets = EntityArgumentType.getPlayers(context, "target");
+                    String type = StringArgumentType.getString(context, "type").toLowerCase();
+                    String file = StringArgumentType.getString(context, "file");
+
+                    //boolean isURL = type.equals("url");
+                    int typePath;
+                    if (type.equals("url")) typePath = 0;
+                    else if (type.equals("local")) typePath = 1;
+                    else typePath = 2;
+
+                    String videoPath = file.replace("\"", "");
+
+                    // Always send packets to clients - works for both singleplayer and multiplayer.
+                    // One packet is built and shared by every target
+                    int count = CutsceneNetworkServer.broadcastCutscene(targets, videoPath, typePath, true, true, false,
+                        spreadMs.applyAsInt(context));
+
+                    context.getSource().sendFeedback(
+                        () -> Text.literal("Cutscene sent to " + count + " player(s): " + videoPath), 
+                        false
+                    );
+                    return count;
+                })
+            );
     }
-    
-}
\ No newline at end of file
+}
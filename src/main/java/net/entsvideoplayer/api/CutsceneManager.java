@@ -1,21 +1,27 @@
 package net.entsvideoplayer.api;
 
 import net.entsvideoplayer.client.CutsceneScreen;
+import net.entsvideoplayer.client.FFmpegBootstrap;
+import net.entsvideoplayer.client.PackVideoSource;
+import net.entsvideoplayer.client.PreloadCache;
+import net.entsvideoplayer.client.VideoSurface;
 import net.minecraft.client.MinecraftClient;
-import net.minecraft.resource.Resource;
 import net.minecraft.resource.ResourceManager;
 import net.minecraft.util.Identifier;
 
 import java.io.FileNotFoundException;
-import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
-import java.util.Optional;
+import java.util.ArrayList;
+import java.util.List;
 
 public class CutsceneManager {
     private static CutsceneScreen currentCutscene = null;
+    // Locations of the current cutscene's playlist entries (just one for a single video)
+    private static List<String> currentLocations = List.of();
+    private static int currentType = 0;
+    private static CutsceneResumeHandle lastInterrupted = null;
     private static boolean playerMovementDisabled = false;
     private static boolean hideGui = false;
 
@@ -27,9 +33,132 @@ public class CutsceneManager {
      * @param hideHud Whether to hide the HUD during cutscene
      */
     public static void playCutscene(String location, int type, boolean disableMovement, boolean hideHud) throws FileNotFoundException {
+        playCutscene(location, type, disableMovement, hideHud, false);
+    }
+
+    /**
+     * Play a cutscene, optionally looping it until {@link #stopCutscene()}
+     * @param location The file path or URL to the video
+     * @param type Whether this is a URL (0) or local file (1) or pack file (2)
+     * @param disableMovement Whether to disable player movement during cutscene
+     * @param hideHud Whether to hide the HUD during cutscene
+     * @param loop Whether to restart the video each time it ends
+     */
+    public static void playCutscene(String location, int type, boolean disableMovement, boolean hideHud, boolean loop) throws FileNotFoundException {
+        playCutscene(location, type, disableMovement, hideHud, loop, 0L);
+    }
+
+    /**
+     * Play a cutscene starting part way in
+     * @param location The file path or URL to the video
+     * @param type Whether this is a URL (0) or local file (1) or pack file (2)
+     * @param disableMovement Whether to disable player movement during cutscene
+     * @param hideHud Whether to hide the HUD during cutscene
+     * @param loop Whether to restart the video each time it ends
+     * @param startMs Where to begin, in milliseconds from the start of the video
+     */
+    public static void playCutscene(String location, int type, boolean disableMovement, boolean hideHud, boolean loop, long startMs) throws FileNotFoundException {
         MinecraftClient client = MinecraftClient.getInstance();
         if (client == null) return;
 
+        String videoPath = resolveVideoPath(client, location, type);
+        if (videoPath == null) return;
+        
+        playerMovementDisabled = disableMovement;
+        hideGui = hideHud;
+
+        // Create and show cutscene screen, once FFmpeg has finished loading
+        FFmpegBootstrap.whenReady(() -> {
+            currentCutscene = new CutsceneScreen(videoPath, disableMovement, hideHud, loop, startMs * 1000L);
+            currentLocations = List.of(location);
+            currentType = type;
+            client.setScreen(currentCutscene);
+        });
+    }
+
+    /**
+     * Play several cutscenes back to back without a gap: each entry is opened and pre-rolled while
+     * the previous one plays, and continues on its texture and audio line
+     * @param locations The file paths or URLs of the videos, in play order
+     * @param type Whether these are URLs (0) or local files (1) or pack files (2)
+     * @param disableMovement Whether to disable player movement during the cutscenes
+     * @param hideHud Whether to hide the HUD during the cutscenes
+     */
+    public static void playPlaylist(List<String> locations, int type, boolean disableMovement, boolean hideHud) {
+        MinecraftClient client = MinecraftClient.getInstance();
+        if (client == null) return;
+
+        List<String> valid = new ArrayList<>();
+        List<String> videoPaths = new ArrayList<>();
+        for (String location : locations) {
+            String videoPath = resolveVideoPath(client, location, type);
+            if (videoPath != null) {
+                valid.add(location);
+                videoPaths.add(videoPath);
+            }
+        }
+        if (videoPaths.isEmpty()) return;
+
+        playerMovementDisabled = disableMovement;
+        hideGui = hideHud;
+
+        FFmpegBootstrap.whenReady(() -> {
+            currentCutscene = new CutsceneScreen(videoPaths, disableMovement, hideHud);
+            currentLocations = List.copyOf(valid);
+            currentType = type;
+            client.setScreen(currentCutscene);
+        });
+    }
+
+    /**
+     * Preload a cutscene so a later {@link #playCutscene(String, int, boolean, boolean)} with the
+     * same location and type starts immediately. The source is opened and its first frames and
+     * audio are decoded in the background.
+     * @param location The file path or URL to the video
+     * @param type Whether this is a URL (0) or local file (1) or pack file (2)
+     */
+    public static void preload(String location, int type) {
+        MinecraftClient client = MinecraftClient.getInstance();
+        if (client == null) return;
+
+        String videoPath = resolveVideoPath(client, location, type);
+        if (videoPath == null) return;
+
+        if (type == 1 && !Files.exists(Paths.get(videoPath))) {
+            System.err.println("Cannot preload missing video: " + videoPath);
+            return;
+        }
+        FFmpegBootstrap.whenReady(() -> PreloadCache.preload(videoPath));
+    }
+
+    /**
+     * Open a video to draw in the world or on the HUD, alongside any number of others and the
+     * cutscene screen. Call {@link VideoSurface#update(int, int)} each frame it is drawn and
+     * {@link VideoSurface#close()} when done with it.
+     * @param location The file path or URL to the video
+     * @param type Whether this is a URL (0) or local file (1) or pack file (2)
+     * @param loop Start over at the end instead of holding the last frame
+     * @return The surface, or null if the location is invalid
+     */
+    public static VideoSurface openSurface(String location, int type, boolean loop) {
+        MinecraftClient client = MinecraftClient.getInstance();
+        if (client == null) return null;
+
+        String videoPath = resolveVideoPath(client, location, type);
+        if (videoPath == null) return null;
+
+        if (type == 1 && !Files.exists(Paths.get(videoPath))) {
+            System.err.println("Cannot open missing video: " + videoPath);
+            return null;
+        }
+        return VideoSurface.open(videoPath, loop);
+    }
+
+    /**
+     * Turn a location of the given type into a path or URL FFmpeg can open
+     * @return The path, or null if the location is invalid
+     */
+    private static String resolveVideoPath(MinecraftClient client, String location, int type) {
         String videoPath;
         if (type == 0) {
             // Use URL directly
@@ -47,53 +176,24 @@ public class CutsceneManager {
             if (parts.length != 2) {
                 // Invalid format, fallback or log error
                 System.err.println("Invalid resource location format. Expected 'namespace:filename', got: " + cleanLocation);
-                return;
+                return null;
             }
             
             String namespace = parts[0];
             String filename = parts[1];
             
-            // Try to extract the resource to a temporary location
-            try {
-                Identifier resourceId = Identifier.of(namespace, "videos/" + filename);
-                Optional<Resource> resourceOptional = client.getResourceManager().getResource(resourceId);
-                
-                if (resourceOptional.isPresent()) {
-                    Resource resource = resourceOptional.get();
-                    
-                    // Create temp file to store the video
-                    Path tempDir = Paths.get(System.getProperty("java.io.tmpdir"), "entsvideoplayer");
-                    Files.createDirectories(tempDir);
-                    Path tempFile = tempDir.resolve(namespace + "_" + filename);
-                    
-                    // Copy resource to temp file
-                    try (InputStream inputStream = resource.getInputStream()) {
-                        Files.copy(inputStream, tempFile, StandardCopyOption.REPLACE_EXISTING);
-                    }
-                    
-                    videoPath = tempFile.toString();
-                } else {
-                    System.err.println("Resource not found: " + resourceId);
-                    return;
-                }
-            } catch (Exception e) {
-                System.err.println("Failed to load resource video: " + e.getMessage());
-                e.printStackTrace();
-                return;
+            // Stream the video straight out of the pack; no temp copy
+            Identifier resourceId = Identifier.of(namespace, "videos/" + filename);
+            if (client.getResourceManager().getResource(resourceId).isEmpty()) {
+                System.err.println("Resource not found: " + resourceId);
+                return null;
             }
+            videoPath = PackVideoSource.uri(resourceId);
         } else {
             System.err.println("Invalid type: " + type);
-            return;
+            return null;
         }
-        
-        playerMovementDisabled = disableMovement;
-        hideGui = hideHud;
-
-        // Create and show cutscene screen
-        client.execute(() -> {
-            currentCutscene = new CutsceneScreen(videoPath, disableMovement, hideHud);
-            client.setScreen(currentCutscene);
-        });
+        return videoPath;
     }
 
     /**
@@ -110,21 +210,78 @@ public class CutsceneManager {
         playCutscene(filename, fix, disableMovement, hideHud);
     }
 
+    /**
+     * Jump the current cutscene to a position. Seeks land on the nearest keyframe before the
+     * position and decode forward from there, so they stay fast even in long videos.
+     * @param positionMs Position in milliseconds from the start of the video
+     */
+    public static void seek(long positionMs) {
+        MinecraftClient client = MinecraftClient.getInstance();
+        if (client == null || currentCutscene == null) return;
+
+        CutsceneScreen screen = currentCutscene;
+        client.execute(() -> screen.seek(positionMs * 1000L));
+    }
+
+    /**
+     * @return Where the current cutscene is now, or null if none is playing
+     */
+    public static CutsceneResumeHandle getResumeHandle() {
+        CutsceneScreen screen = currentCutscene;
+        if (screen == null) return null;
+        return new CutsceneResumeHandle(currentLocations.get(screen.getPlaylistIndex()), currentType, screen.getPositionUs() / 1000L);
+    }
+
+    /**
+     * @return Where the last cutscene that was stopped before its end (closed, skipped or
+     *         interrupted by a disconnect) stopped, or null if the last one played to the end
+     */
+    public static CutsceneResumeHandle getLastInterrupted() {
+        return lastInterrupted;
+    }
+
+    /**
+     * Continue a cutscene from a handle returned by {@link #getResumeHandle()} or {@link #getLastInterrupted()}
+     * @param disableMovement Whether to disable player movement during cutscene
+     * @param hideHud Whether to hide the HUD during cutscene
+     */
+    public static void resume(CutsceneResumeHandle handle, boolean disableMovement, boolean hideHud) throws FileNotFoundException {
+        playCutscene(handle.location(), handle.type(), disableMovement, hideHud, false, handle.positionMs());
+    }
+
     public static void stopCutscene() {
         MinecraftClient client = MinecraftClient.getInstance();
         if (client != null && currentCutscene != null) {
             CutsceneScreen screenToClose = currentCutscene;
+            String location = currentLocations.get(screenToClose.getPlaylistIndex());
+            int type = currentType;
             currentCutscene = null; // Clear reference FIRST to prevent recursion
             
             client.execute(() -> {
                 if (screenToClose != null) {
                     screenToClose.cleanup(); // Use cleanup instead of close
+                    rememberStop(screenToClose, location, type);
                 }
                 client.setScreen(null);
             });
         }
     }
 
+    /**
+     * Another screen replaced the cutscene (e.g. the disconnect screen): stop it without closing
+     * the screen that took its place. Render thread.
+     */
+    public static void onCutsceneReplaced(CutsceneScreen screen) {
+        if (currentCutscene != screen) return;
+        currentCutscene = null;
+        screen.cleanup();
+        rememberStop(screen, currentLocations.get(screen.getPlaylistIndex()), currentType);
+    }
+
+    private static void rememberStop(CutsceneScreen screen, String location, int type) {
+        lastInterrupted = screen.hasEnded() ? null : new CutsceneResumeHandle(location, type, screen.getPositionUs() / 1000L);
+    }
+
     public static boolean isPlaying() {
         return currentCutscene != null;
     }
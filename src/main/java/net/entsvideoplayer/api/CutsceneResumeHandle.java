@@ -0,0 +1,11 @@
+package net.entsvideoplayer.api;
+
+/**
+ * Where a cutscene was when it stopped, so it can continue from there later (e.g. after the
+ * player reconnects). Plain data, so a server can store it or rebuild it from its own timing.
+ * @param location The file path, URL or pack location the cutscene was played from
+ * @param type Whether this is a URL (0) or local file (1) or pack file (2)
+ * @param positionMs Playback position in milliseconds from the start of the video
+ */
+public record CutsceneResumeHandle(String location, int type, long positionMs) {
+}
@@ -1,4 +1,8 @@
 package net.entsvideoplayer.api;
+import java.util.Collection;
+import java.util.List;
+
+import net.entsvideoplayer.client.VideoSurface;
 import net.minecraft.server.network.ServerPlayerEntity;
 
 public interface EntsVideoAPI {
@@ -8,12 +12,77 @@ public interface EntsVideoAPI {
      */
     void playCutsceneLocal(String source, boolean isUrl, boolean disableMovement, boolean hideHud);
 
+    /**
+     * Client-side: play several videos back to back without a gap between them.
+     * Type is URL (0), local file (1) or pack file (2) for every entry.
+     */
+    void playPlaylistLocal(List<String> sources, int type, boolean disableMovement, boolean hideHud);
+
+    /**
+     * Client-side: open and pre-roll a cutscene in the background so a later play of the same
+     * source starts without loading. Type is URL (0), local file (1) or pack file (2).
+     */
+    void preloadCutscene(String source, int type);
+
+    /**
+     * Client-side: open a video for an in-world screen, billboard or HUD overlay. Any number can
+     * play at once on a shared decode pool, prioritised by how much of each is on screen.
+     * Type is URL (0), local file (1) or pack file (2). Returns null if the source is invalid.
+     */
+    VideoSurface openVideoSurface(String source, int type, boolean loop);
+
     /**
      * Server-side helper: request that the given server player start playing the cutscene.
      * The implementation should send a S2C packet to the player.
      */
     void requestPlayCutsceneForPlayer(ServerPlayerEntity player, String source, int type, boolean disableMovement, boolean hideHud);
 
+    /**
+     * Server-side helper: as above, but the cutscene can loop until it is stopped.
+     */
+    void requestPlayCutsceneForPlayer(ServerPlayerEntity player, String source, int type, boolean disableMovement, boolean hideHud, boolean loop);
+
+    /**
+     * Server-side helper: play a cutscene for many players at once, sharing one packet object (each
+     * connection still serializes it).
+     * For URL videos, each client starts its fetch at a random time within {@code spreadMs}, so a
+     * big audience doesn't hit the video's server all in the same instant (0 to start together).
+     * Returns how many players it was sent to.
+     */
+    int broadcastCutscene(Collection<ServerPlayerEntity> players, String source, int type, boolean disableMovement, boolean hideHud, boolean loop, int spreadMs);
+
+    /**
+     * Server-side helper: request that the given server player play the videos back to back.
+     */
+    void requestPlayPlaylistForPlayer(ServerPlayerEntity player, List<String> sources, int type, boolean disableMovement, boolean hideHud);
+
+    /**
+     * Client-side: jump the playing cutscene to a position in milliseconds.
+     */
+    void seekCutscene(long positionMs);
+
+    /**
+     * Client-side: where the playing cutscene is now, or null if none is playing.
+     */
+    CutsceneResumeHandle getResumeHandle();
+
+    /**
+     * Client-side: where the last cutscene stopped before its end (closed or interrupted by a
+     * disconnect), or null if it played to the end.
+     */
+    CutsceneResumeHandle getLastInterrupted();
+
+    /**
+     * Client-side: continue a cutscene from a handle.
+     */
+    void resumeCutscene(CutsceneResumeHandle handle, boolean disableMovement, boolean hideHud);
+
+    /**
+     * Server-side helper: ask the player to continue a cutscene from a handle (e.g. one the server
+     * kept from its own timing when the player disconnected).
+     */
+    void requestResumeCutsceneForPlayer(ServerPlayerEntity player, CutsceneResumeHandle handle, boolean disableMovement, boolean hideHud);
+
     /**
      * @return global singleton (may be null early in init).
      */
@@ -1,9 +1,14 @@
 package net.entsvideoplayer.api;
 
 import java.io.FileNotFoundException;
+import java.util.Collection;
+import java.util.List;
 
 import net.entsvideoplayer.EntsVideoPlayer;
+import net.entsvideoplayer.client.VideoSurface;
+import net.entsvideoplayer.network.CutsceneNetworkServer;
 import net.entsvideoplayer.network.PlayCutscenePayload;
+import net.entsvideoplayer.network.PlayPlaylistPayload;
 import net.fabricmc.fabric.api.networking.v1.ServerPlayNetworking;
 import net.minecraft.server.network.ServerPlayerEntity;
 import net.minecraft.util.Identifier;
@@ -23,10 +28,70 @@ public class EntsVideoAPIImpl implements EntsVideoAPI{
         }
     }
 
+    @Override
+    public void playPlaylistLocal(List<String> sources, int type, boolean disableMovement, boolean hideHud) {
+        CutsceneManager.playPlaylist(sources, type, disableMovement, hideHud);
+    }
+
+    @Override
+    public void preloadCutscene(String source, int type) {
+        CutsceneManager.preload(source, type);
+    }
+
+    @Override
+    public VideoSurface openVideoSurface(String source, int type, boolean loop) {
+        return CutsceneManager.openSurface(source, type, loop);
+    }
+
     @Override
     public void requestPlayCutsceneForPlayer(ServerPlayerEntity player, String source, int type, boolean disableMovement, boolean hideHud) {
+        requestPlayCutsceneForPlayer(player, source, type, disableMovement, hideHud, false);
+    }
+
+    @Override
+    public void requestPlayCutsceneForPlayer(ServerPlayerEntity player, String source, int type, boolean disableMovement, boolean hideHud, boolean loop) {
         // Build PacketByteBuf
-        PlayCutscenePayload packet = new PlayCutscenePayload(source, type, disableMovement, hideHud);
+        PlayCutscenePayload packet = new PlayCutscenePayload(source, type, disableMovement, hideHud, loop, 0L);
+        ServerPlayNetworking.send(player, packet);
+    }
+
+    @Override
+    public int broadcastCutscene(Collection<ServerPlayerEntity> players, String source, int type, boolean disableMovement, boolean hideHud, boolean loop, int spreadMs) {
+        return CutsceneNetworkServer.broadcastCutscene(players, source, type, disableMovement, hideHud, loop, spreadMs);
+    }
+
+    @Override
+    public void requestPlayPlaylistForPlayer(ServerPlayerEntity player, List<String> sources, int type, boolean disableMovement, boolean hideHud) {
+        ServerPlayNetworking.send(player, new PlayPlaylistPayload(sources, type, disableMovement, hideHud));
+    }
+
+    @Override
+    public void seekCutscene(long positionMs) {
+        CutsceneManager.seek(positionMs);
+    }
+
+    @Override
+    public CutsceneResumeHandle getResumeHandle() {
+        return CutsceneManager.getResumeHandle();
+    }
+
+    @Override
+    public CutsceneResumeHandle getLastInterrupted() {
+        return CutsceneManager.getLastInterrupted();
+    }
+
+    @Override
+    public void resumeCutscene(CutsceneResumeHandle handle, boolean disableMovement, boolean hideHud) {
+        try {
+            CutsceneManager.resume(handle, disableMovement, hideHud);
+        } catch (FileNotFoundException e) {
+            e.printStackTrace();
+        }
+    }
+
+    @Override
+    public void requestResumeCutsceneForPlayer(ServerPlayerEntity player, CutsceneResumeHandle handle, boolean disableMovement, boolean hideHud) {
+        PlayCutscenePayload packet = new PlayCutscenePayload(handle.location(), handle.type(), disableMovement, hideHud, false, handle.positionMs());
         ServerPlayNetworking.send(player, packet);
     }
 }
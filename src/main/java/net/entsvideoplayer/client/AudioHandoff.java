@@ -0,0 +1,50 @@
+package net.entsvideoplayer.client;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.SourceDataLine;
+
+/**
+ * An audio line passed from a finished playlist entry to the next one. The line stays open and
+ * running, so there is no gap or click between entries. {@code writer} is the finished entry's
+ * audio thread, which may still be writing its last samples; the next writer waits for it.
+ */
+record AudioHandoff(SourceDataLine line, Thread writer) {
+
+    boolean matches(AudioFormat format) {
+        return line.getFormat().matches(format);
+    }
+
+    /**
+     * Block until the previous writer has written everything it had.
+     */
+    void awaitWriter() {
+        if (writer == null) return;
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return Sample frames written to the line but not yet played
+     */
+    long queuedFrames() {
+        return (line.getBufferSize() - line.available()) / line.getFormat().getFrameSize();
+    }
+
+    /**
+     * Not reused (format mismatch or nothing to play it): let the queued audio finish on its own
+     * thread, then close the line.
+     */
+    void close() {
+        Thread thread = new Thread(() -> {
+            awaitWriter();
+            line.drain();
+            line.stop();
+            line.close();
+        }, "Cutscene-Audio-Thread");
+        thread.setDaemon(true);
+        thread.start();
+    }
+}
@@ -0,0 +1,85 @@
+package net.entsvideoplayer.client;
+
+import javax.sound.sampled.SourceDataLine;
+import java.nio.ByteBuffer;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Lock-free single-producer/single-consumer ring of interleaved PCM bytes.
+ * The decode thread bulk-copies each audio frame in; the audio writer thread hands contiguous
+ * regions of the ring straight to {@link SourceDataLine#write}, so neither side allocates or locks.
+ */
+class AudioRingBuffer {
+    private static final long PARK_NANOS = 500_000L;
+
+    private final byte[] ring;
+    private final int frameSize;
+
+    // Monotonic byte counters; index into the ring with (pos % ring.length)
+    private volatile long writePos = 0L;
+    private volatile long readPos = 0L;
+
+    /**
+     * @param frameSize Bytes per sample frame (channels * 2 for S16); the line only accepts whole frames
+     * @param frames Capacity in sample frames
+     */
+    AudioRingBuffer(int frameSize, int frames) {
+        // A whole number of frames, so contiguous regions never split a sample frame at the wrap
+        this.ring = new byte[frameSize * frames];
+        this.frameSize = frameSize;
+    }
+
+    /**
+     * Producer: copy {@code length} bytes starting at absolute index {@code offset} of {@code src}
+     * into the ring, waiting for space as needed. The buffer's position is left unchanged.
+     *
+     * @return false if interrupted before everything was written
+     */
+    boolean write(ByteBuffer src, int offset, int length) {
+        int written = 0;
+        while (written < length) {
+            long w = writePos;
+            int free = ring.length - (int) (w - readPos);
+            if (free == 0) {
+                if (Thread.currentThread().isInterrupted()) return false;
+                LockSupport.parkNanos(PARK_NANOS);
+                continue;
+            }
+
+            int index = (int) (w % ring.length);
+            int n = Math.min(Math.min(free, length - written), ring.length - index);
+            src.get(offset + written, ring, index, n);
+            written += n;
+            writePos = w + n; // publish
+        }
+        return true;
+    }
+
+    /**
+     * Consumer: write the next contiguous readable region to {@code line}, at most {@code maxBytes}.
+     * Blocks in the line write (paced by the audio device) but never on the producer.
+     *
+     * @return Number of bytes written, 0 if the ring was empty
+     */
+    int drainTo(SourceDataLine line, int maxBytes) {
+        long r = readPos;
+        int available = (int) (writePos - r);
+        if (available == 0) return 0;
+
+        int index = (int) (r % ring.length);
+        int n = Math.min(Math.min(available, maxBytes), ring.length - index);
+        n -= n % frameSize;
+        if (n == 0) return 0;
+        int written = line.write(ring, index, n);
+        readPos = r + written; // release space to the producer
+        return written;
+    }
+
+    boolean isEmpty() {
+        return writePos == readPos;
+    }
+
+    void clear() {
+        readPos = writePos;
+    }
+}
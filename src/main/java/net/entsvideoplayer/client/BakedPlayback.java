@@ -0,0 +1,400 @@
+package net.entsvideoplayer.client;
+
+import net.entsvideoplayer.EntsVideoPlayer;
+
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FastDecompressor;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.DataLine;
+import javax.sound.sampled.SourceDataLine;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Playback of a baked cutscene: RGBA frames written ahead of time by {@link CutsceneBaker},
+ * memory-mapped and handed to the renderer without any decoding or pixel conversion.
+ * <p>
+ * File layout (little-endian): a {@link #HEADER_BYTES} header, the frames back to back, the
+ * S16 PCM audio, then an index of {@link #INDEX_ENTRY_BYTES} per frame (offset, stored length,
+ * timestamp). A frame whose stored length equals width * height * 4 is raw RGBA and is used in
+ * place from the mapping; anything shorter is an LZ4 block, decompressed into a pooled buffer.
+ */
+final class BakedPlayback implements CutscenePlayback {
+    static final int MAGIC = 0x43505645; // "EVPC"
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 72;
+    static final int INDEX_ENTRY_BYTES = 20;
+
+    // Frames the screen can hold at once: the one on screen, the one being taken, one spare
+    private static final int FRAMES_IN_FLIGHT = 3;
+    // Largest single write to the line, ~20ms, so the writer notices shutdown quickly
+    private static final int AUDIO_WRITE_FRAMES = VideoPipeline.AUDIO_SAMPLE_RATE / 50;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer map;
+    private final int width;
+    private final int height;
+    private final int frameBytes;
+    private final int frameCount;
+    private final long frameDurationUs;
+    private final int audioChannels;
+    private final int sampleRate;
+    private final long audioOffset;
+    private final long audioBytes;
+    private final long audioStartUs;
+    private final long[] frameOffsets;
+    private final int[] frameLengths;
+    private final long[] frameTimestamps;
+
+    private final LZ4FastDecompressor decompressor = LZ4Factory.fastestInstance().fastDecompressor();
+    private final FramePool framePool;
+    // Views into the mapping for raw frames, reused round-robin; they own no memory
+    private final RawFrame[] mappedFrames = new RawFrame[FRAMES_IN_FLIGHT];
+    private int nextMappedFrame = 0;
+    private final RawFrame peeked = new RawFrame();
+    private int nextIndex = 0;
+    // Where the audio writer starts in the PCM, in bytes
+    private long audioStartPosition = 0L;
+
+    private SourceDataLine audioLine;
+    private Thread audioThread;
+    private volatile PresentationClock clock;
+    private volatile boolean running = true;
+    // Playlist handoff, as in VideoPipeline
+    private volatile boolean keepAudioLine = false;
+    private volatile AudioHandoff handoff;
+
+    // Benchmark: render-thread time spent producing frames, the baked counterpart of decode + convert
+    private long framesShown = 0L;
+    private long frameNanos = 0L;
+    private long compressedFrames = 0L;
+
+    private BakedPlayback(FileChannel channel, MappedByteBuffer map) throws IOException {
+        this.channel = channel;
+        this.map = map;
+        map.order(ByteOrder.LITTLE_ENDIAN);
+
+        if (map.getInt(0) != MAGIC || map.getInt(4) != VERSION) {
+            throw new IOException("Not a baked cutscene (or an older version)");
+        }
+        width = map.getInt(8);
+        height = map.getInt(12);
+        frameCount = map.getInt(16);
+        audioChannels = map.getInt(20);
+        sampleRate = map.getInt(24);
+        frameDurationUs = map.getLong(32);
+        long indexOffset = map.getLong(40);
+        audioOffset = map.getLong(48);
+        audioBytes = map.getLong(56);
+        audioStartUs = map.getLong(64);
+        frameBytes = width * height * VideoPipeline.BYTES_PER_PIXEL;
+
+        frameOffsets = new long[frameCount];
+        frameLengths = new int[frameCount];
+        frameTimestamps = new long[frameCount];
+        for (int i = 0; i < frameCount; i++) {
+            int entry = (int) (indexOffset + (long) i * INDEX_ENTRY_BYTES);
+            frameOffsets[i] = map.getLong(entry);
+            frameLengths[i] = map.getInt(entry + 8);
+            frameTimestamps[i] = map.getLong(entry + 12);
+        }
+
+        framePool = new FramePool(FRAMES_IN_FLIGHT, frameBytes);
+        for (int i = 0; i < mappedFrames.length; i++) {
+            mappedFrames[i] = new RawFrame();
+        }
+    }
+
+    static BakedPlayback open(Path file) throws IOException {
+        long start = System.nanoTime();
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Baked cutscene too large to map: " + channel.size());
+            }
+            BakedPlayback playback = new BakedPlayback(channel, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+            EntsVideoPlayer.LOGGER.info("Opened baked cutscene {} in {} ms ({}x{}, {} frames)", file,
+                    (System.nanoTime() - start) / 1_000_000L, playback.width, playback.height, playback.frameCount);
+            return playback;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public synchronized void prepare() {
+        if (clock != null) return;
+
+        if (audioChannels > 0 && audioBytes > 0) {
+            try {
+                AudioFormat audioFormat = new AudioFormat((float) sampleRate, 16, audioChannels, true,
+                        ByteOrder.nativeOrder() == ByteOrder.BIG_ENDIAN); // baked as FFmpeg native-endian S16
+                audioLine = (SourceDataLine) AudioSystem.getLine(new DataLine.Info(SourceDataLine.class, audioFormat));
+                audioLine.open(audioFormat);
+            } catch (Exception e) {
+                EntsVideoPlayer.LOGGER.error("Failed to initialize audio", e);
+                audioLine = null;
+            }
+        }
+        clock = new PresentationClock(audioLine);
+    }
+
+    @Override
+    public synchronized void start() {
+        prepare();
+        if (audioLine != null && audioThread == null) {
+            if (handoff == null) audioLine.start(); // a handed-over line is already running
+            startAudio();
+        }
+    }
+
+    @Override
+    public synchronized AudioHandoff detachAudio() {
+        if (audioLine == null || audioThread == null) return null;
+        keepAudioLine = true;
+        return new AudioHandoff(audioLine, audioThread);
+    }
+
+    @Override
+    public synchronized void attachAudio(AudioHandoff previous) {
+        if (previous == null) return;
+        prepare();
+        if (audioLine == null || audioThread != null || !previous.matches(audioLine.getFormat())) {
+            previous.close();
+            return;
+        }
+        audioLine.close(); // our own line was only opened for pre-roll, never started
+        audioLine = previous.line();
+        handoff = previous;
+        clock = clock.withLine(audioLine, audioLine.getLongFramePosition() + previous.queuedFrames());
+    }
+
+    private void startAudio() {
+        audioThread = new Thread(this::runAudio, "Cutscene-Audio-Thread");
+        audioThread.setDaemon(true);
+        audioThread.start();
+    }
+
+    @Override
+    public boolean rewind() {
+        return seek(0L);
+    }
+
+    /**
+     * Frames are random access, so seeking is just moving the index, the audio offset and the clock.
+     */
+    @Override
+    public synchronized boolean seek(long timestampUs) {
+        int index = 0;
+        while (index + 1 < frameCount && frameTimestamps[index + 1] <= timestampUs) {
+            index++;
+        }
+        nextIndex = index;
+        long startUs = frameCount > 0 ? frameTimestamps[index] : 0L;
+        long frameSize = (long) Math.max(audioChannels, 1) * Short.BYTES;
+        audioStartPosition = Math.min(Math.max(startUs - audioStartUs, 0L) * sampleRate / 1_000_000L * frameSize, audioBytes);
+
+        if (clock == null) return true; // not prepared yet; start() begins here
+        boolean playing = audioThread != null;
+        stopAudio();
+        running = true;
+        if (audioLine != null) {
+            audioLine.flush();
+            clock = new PresentationClock(audioLine, audioLine.getLongFramePosition());
+            if (playing) startAudio();
+        } else {
+            clock = new PresentationClock(null);
+        }
+        return true;
+    }
+
+    private void stopAudio() {
+        running = false;
+        // A detached line's writer finishes the PCM on its own
+        if (!keepAudioLine && audioThread != null && audioThread.isAlive()) {
+            try {
+                audioThread.interrupt();
+                audioThread.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Audio thread: write the baked PCM to the line straight from the mapping.
+     */
+    private void runAudio() {
+        int frameSize = audioLine.getFormat().getFrameSize();
+        byte[] chunk = new byte[AUDIO_WRITE_FRAMES * frameSize];
+        ByteBuffer pcm = map.duplicate();
+        try {
+            AudioHandoff previous = handoff;
+            if (previous != null) {
+                previous.awaitWriter();
+                clock = clock.withLine(audioLine, audioLine.getLongFramePosition() + previous.queuedFrames());
+                handoff = null;
+            }
+            long position = audioStartPosition;
+            clock.onAudioStart(audioStartUs + position / frameSize * 1_000_000L / sampleRate);
+            while ((running || keepAudioLine) && position < audioBytes) {
+                int n = (int) Math.min(chunk.length, audioBytes - position);
+                pcm.get((int) (audioOffset + position), chunk, 0, n);
+                audioLine.write(chunk, 0, n);
+                position += n;
+            }
+            if (running && !keepAudioLine) audioLine.drain();
+        } catch (Exception e) {
+            EntsVideoPlayer.LOGGER.error("Error playing audio", e);
+        } finally {
+            clock.onAudioEnd();
+        }
+    }
+
+    @Override
+    public RawFrame pollFrame() {
+        if (nextIndex >= frameCount) return null;
+
+        long start = System.nanoTime();
+        // Frames are random access, so skip straight to the newest one that is already due
+        long now = clock.nowUs();
+        int index = nextIndex;
+        if (now != PresentationClock.NOT_STARTED) {
+            while (index + 1 < frameCount && frameTimestamps[index + 1] <= now) {
+                index++;
+            }
+        }
+        nextIndex = index + 1;
+
+        RawFrame frame;
+        int offset = (int) frameOffsets[index];
+        int length = frameLengths[index];
+        if (length == frameBytes) {
+            frame = mappedFrames[nextMappedFrame];
+            nextMappedFrame = (nextMappedFrame + 1) % mappedFrames.length;
+            frame.buffer = map.slice(offset, length);
+        } else {
+            try {
+                frame = framePool.acquire(width, height, width * VideoPipeline.BYTES_PER_PIXEL);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+            decompressor.decompress(map, offset, frame.buffer, 0, frameBytes);
+            compressedFrames++;
+        }
+        frame.width = width;
+        frame.height = height;
+        frame.stride = width * VideoPipeline.BYTES_PER_PIXEL;
+        frame.timestampUs = frameTimestamps[index];
+
+        framesShown++;
+        frameNanos += System.nanoTime() - start;
+        return frame;
+    }
+
+    @Override
+    public RawFrame peekFrame() {
+        if (nextIndex >= frameCount) return null;
+        peeked.timestampUs = frameTimestamps[nextIndex];
+        return peeked;
+    }
+
+    @Override
+    public void releaseFrame(RawFrame frame) {
+        if (frame == null) return;
+        for (RawFrame mapped : mappedFrames) {
+            if (frame == mapped) return; // a view into the mapping, nothing to give back
+        }
+        framePool.release(frame);
+    }
+
+    @Override
+    public long clockUs(long firstFramePtsUs) {
+        long now = clock.nowUs();
+        if (now == PresentationClock.NOT_STARTED) {
+            clock.startIfNeeded(firstFramePtsUs);
+            now = clock.nowUs();
+        }
+        return now;
+    }
+
+    @Override
+    public boolean isFinished() {
+        return nextIndex >= frameCount;
+    }
+
+    @Override
+    public int getVideoWidth() {
+        return width;
+    }
+
+    @Override
+    public int getVideoHeight() {
+        return height;
+    }
+
+    @Override
+    public int getTargetWidth() {
+        return width;
+    }
+
+    @Override
+    public int getTargetHeight() {
+        return height;
+    }
+
+    @Override
+    public void setTargetSize(int width, int height) {
+        // Baked at a fixed size; the GPU scales it
+    }
+
+    @Override
+    public double getFrameRate() {
+        return 1_000_000.0 / Math.max(frameDurationUs, 1L);
+    }
+
+    @Override
+    public int getAudioChannels() {
+        return audioChannels;
+    }
+
+    @Override
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    @Override
+    public long getBufferedBytes() {
+        // The mapping is page cache, not our memory; only the decompression buffers count
+        return (long) FRAMES_IN_FLIGHT * frameBytes;
+    }
+
+    @Override
+    public void close() {
+        // Same line as VideoPipeline's: reading a frame from the mapping is this path's decode
+        long decodeUs = framesShown > 0 ? frameNanos / framesShown / 1000L : 0L;
+        EntsVideoPlayer.LOGGER.info("CPU per frame: {} us (decode {} us + convert 0 us, baked path; {} of {} frames LZ4)",
+                decodeUs, decodeUs, compressedFrames, framesShown);
+
+        stopAudio();
+        if (audioLine != null && !keepAudioLine) {
+            audioLine.stop();
+            audioLine.flush();
+            audioLine.close();
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            EntsVideoPlayer.LOGGER.warn("Error closing baked cutscene", e);
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package net.entsvideoplayer.client;
+
+import net.entsvideoplayer.EntsVideoPlayer;
+import net.fabricmc.loader.api.FabricLoader;
+
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import org.bytedeco.ffmpeg.avutil.AVFrame;
+import org.bytedeco.javacv.FFmpegFrameGrabber;
+import org.bytedeco.javacv.Frame;
+import org.lwjgl.system.MemoryUtil;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Transcodes short cutscenes into the baked format read by {@link BakedPlayback}, in the
+ * background on their first play. Later plays skip FFmpeg entirely.
+ * <p>
+ * Only local files and pack videos are baked (network sources may change under the same URL).
+ * A baked file is named by a hash of the source and its size/modification time (local files)
+ * or the pack that provides it, so an edited video is baked again.
+ */
+final class CutsceneBaker {
+    // Decoder threads for a bake; it runs alongside the first playback, so keep it light
+    private static final String BAKE_THREADS = "2";
+
+    private static final Set<Path> inProgress = ConcurrentHashMap.newKeySet();
+
+    private CutsceneBaker() {}
+
+    /**
+     * @return Where the baked copy of {@code source} lives (whether or not it exists yet),
+     *         or null if this source is never baked
+     */
+    static Path bakedFile(String source) {
+        if (!CutsceneConfig.get().bakeEnabled || source.contains("://") && !PackVideoSource.isPackUri(source)) {
+            return null;
+        }
+
+        String stamp;
+        try {
+            if (PackVideoSource.isPackUri(source)) {
+                stamp = PackVideoSource.getPackId(source);
+            } else {
+                Path file = Path.of(source);
+                stamp = Files.size(file) + ":" + Files.getLastModifiedTime(file).toMillis();
+            }
+        } catch (IOException e) {
+            return null;
+        }
+
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest((source + "|" + stamp).getBytes(StandardCharsets.UTF_8));
+            return bakedDir().resolve(HexFormat.of().formatHex(digest, 0, 16) + ".evpc");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Bake {@code source} on a background thread if it is short enough and its frames fit the
+     * configured size limit. {@code pipeline} is the playback that was just opened for it.
+     */
+    static void bakeIfEligible(String source, Path target, VideoPipeline pipeline) {
+        CutsceneConfig config = CutsceneConfig.get();
+        long lengthUs = pipeline.getLengthUs();
+        if (lengthUs <= 0 || lengthUs > config.bakeMaxSeconds * 1_000_000L) return;
+
+        int width = pipeline.getTargetWidth();
+        int height = pipeline.getTargetHeight();
+        long frames = (long) Math.ceil(lengthUs / 1_000_000.0 * pipeline.getFrameRate());
+        long rawBytes = frames * width * height * VideoPipeline.BYTES_PER_PIXEL;
+        // Without compression this is the file size; with LZ4 it is the worst case
+        if (rawBytes > ((long) config.bakeMaxMb << 20)) {
+            EntsVideoPlayer.LOGGER.debug("Not baking {}: {} MB of frames exceeds bakeMaxMb", source, rawBytes >> 20);
+            return;
+        }
+        if (!inProgress.add(target)) return;
+
+        Thread thread = new Thread(() -> {
+            try {
+                bake(source, target, width, height, config.bakeCompression.equals("lz4"));
+            } finally {
+                inProgress.remove(target);
+            }
+        }, "Cutscene-Bake-Thread");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.start();
+    }
+
+    private static void bake(String source, Path target, int width, int height, boolean compress) {
+        FFmpegFrameGrabber grabber;
+        try {
+            grabber = VideoPipeline.createGrabber(source, false);
+        } catch (Exception e) {
+            EntsVideoPlayer.LOGGER.warn("Failed to bake {}", source, e);
+            return;
+        }
+        bake(grabber, source, target, width, height, compress);
+    }
+
+    /**
+     * Bake from a grabber configured as by {@link VideoPipeline#createGrabber} but not started yet.
+     * Releases the grabber.
+     * @return true if {@code target} was written
+     */
+    static boolean bake(FFmpegFrameGrabber grabber, String source, Path target, int width, int height, boolean compress) {
+        long startNanos = System.nanoTime();
+        Path part = target.resolveSibling(target.getFileName() + ".part");
+        Path audioPart = target.resolveSibling(target.getFileName() + ".pcm.part");
+        int frameBytes = width * height * VideoPipeline.BYTES_PER_PIXEL;
+
+        try {
+            Files.createDirectories(target.getParent());
+            grabber.setVideoOption("threads", BAKE_THREADS);
+            grabber.start();
+
+            LZ4Compressor compressor = compress ? LZ4Factory.fastestInstance().fastCompressor() : null;
+            ByteBuffer packed = compress ? ByteBuffer.allocateDirect(compressor.maxCompressedLength(frameBytes)) : null;
+            RawFrame rgba = new RawFrame();
+            rgba.buffer = ByteBuffer.allocateDirect(frameBytes);
+            rgba.width = width;
+            rgba.height = height;
+            rgba.stride = width * VideoPipeline.BYTES_PER_PIXEL;
+
+            // Index entries: offset (8), stored length (4), timestamp (8)
+            ByteBuffer index = ByteBuffer.allocate(BakedPlayback.INDEX_ENTRY_BYTES * 256).order(ByteOrder.LITTLE_ENDIAN);
+            int frameCount = 0;
+            long audioStartUs = Long.MIN_VALUE;
+            long storedBytes = 0L;
+
+            try (FileChannel out = FileChannel.open(part, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                         StandardOpenOption.TRUNCATE_EXISTING);
+                 FileChannel audio = FileChannel.open(audioPart, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                         StandardOpenOption.READ, StandardOpenOption.TRUNCATE_EXISTING);
+                 FrameConverter converter = new FrameConverter()) {
+                out.position(BakedPlayback.HEADER_BYTES);
+
+                Frame frame;
+                while ((frame = grabber.grab()) != null) {
+                    if (frame.image != null && frame.opaque instanceof AVFrame picture) {
+                        converter.convert(picture, rgba);
+
+                        ByteBuffer stored = rgba.buffer;
+                        if (compressor != null) {
+                            int n = compressor.compress(rgba.buffer, 0, frameBytes, packed, 0, packed.capacity());
+                            if (n < frameBytes) {
+                                packed.position(0).limit(n);
+                                stored = packed;
+                            }
+                        }
+                        stored.position(0);
+
+                        if (index.remaining() < BakedPlayback.INDEX_ENTRY_BYTES) {
+                            ByteBuffer grown = ByteBuffer.allocate(index.capacity() * 2).order(ByteOrder.LITTLE_ENDIAN);
+                            index = grown.put(index.flip());
+                        }
+                        index.putLong(out.position()).putInt(stored.remaining()).putLong(frame.timestamp);
+                        storedBytes += stored.remaining();
+                        writeFully(out, stored);
+                        frameCount++;
+                    }
+
+                    // Audio only from the first video frame on, as in the live pipeline
+                    if (frameCount > 0 && frame.samples != null) {
+                        if (audioStartUs == Long.MIN_VALUE) audioStartUs = frame.timestamp;
+                        ShortBuffer samples = (ShortBuffer) frame.samples[0];
+                        writeFully(audio, MemoryUtil.memByteBuffer(MemoryUtil.memAddress(samples), samples.remaining() * Short.BYTES));
+                    }
+                }
+
+                long audioOffset = out.position();
+                long audioBytes = audio.size();
+                long copied = 0L;
+                while (copied < audioBytes) {
+                    copied += audio.transferTo(copied, audioBytes - copied, out);
+                }
+
+                long indexOffset = out.position();
+                writeFully(out, index.flip());
+
+                ByteBuffer header = ByteBuffer.allocate(BakedPlayback.HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+                header.putInt(BakedPlayback.MAGIC).putInt(BakedPlayback.VERSION)
+                        .putInt(width).putInt(height).putInt(frameCount)
+                        .putInt(grabber.getAudioChannels()).putInt(VideoPipeline.AUDIO_SAMPLE_RATE)
+                        .putInt(compress ? 1 : 0)
+                        .putLong((long) (1_000_000.0 / Math.max(grabber.getFrameRate(), 1.0)))
+                        .putLong(indexOffset).putLong(audioOffset).putLong(audioBytes)
+                        .putLong(audioStartUs == Long.MIN_VALUE ? 0L : audioStartUs);
+                out.position(0);
+                writeFully(out, header.flip());
+            }
+
+            Files.move(part, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            EntsVideoPlayer.LOGGER.info("Baked {} to {}: {} frames at {}x{}, {} MB ({}), {} ms",
+                    source, target.getFileName(), frameCount, width, height, Files.size(target) >> 20,
+                    compress ? "LZ4, " + (storedBytes * 100 / Math.max((long) frameCount * frameBytes, 1L)) + "% of raw" : "raw",
+                    (System.nanoTime() - startNanos) / 1_000_000L);
+            return true;
+        } catch (Exception e) {
+            EntsVideoPlayer.LOGGER.warn("Failed to bake {}", source, e);
+            return false;
+        } finally {
+            try {
+                grabber.stop();
+                grabber.release();
+            } catch (Exception e) {
+                EntsVideoPlayer.LOGGER.debug("Error releasing bake grabber", e);
+            }
+            try {
+                Files.deleteIfExists(part);
+                Files.deleteIfExists(audioPart);
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private static void writeFully(FileChannel out, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+    }
+
+    private static Path bakedDir() {
+        return FabricLoader.getInstance().getGameDir().resolve("mods").resolve("entsvideoplayer-lib").resolve("baked");
+    }
+}
@@ -0,0 +1,176 @@
+package net.entsvideoplayer.client;
+
+import net.entsvideoplayer.EntsVideoPlayer;
+import net.fabricmc.loader.api.FabricLoader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+
+/**
+ * Client settings, read from config/entsvideoplayer.properties.
+ * Missing keys fall back to their defaults and are written back so the file documents every option.
+ */
+public class CutsceneConfig {
+    private static final String FILE_NAME = "entsvideoplayer.properties";
+    private static CutsceneConfig instance;
+
+    private final Properties properties = new Properties();
+    private boolean dirty = false;
+
+    /**
+     * Average render-thread time per frame that may be spent copying and uploading video frames (ms), 0 for no limit
+     */
+    public final double renderBudgetMs;
+
+    /**
+     * Upper bound for the decode size; videos are scaled down to the on-screen size but never above this
+     */
+    public final int maxDecodeWidth;
+    public final int maxDecodeHeight;
+
+    /**
+     * Decoder threads, 0 to pick from the codec, resolution and core count
+     */
+    public final int decoderThreads;
+
+    /**
+     * Decoder threading mode: auto, frame or slice
+     */
+    public final String decoderThreadType;
+
+    /**
+     * Preloaded cutscenes kept warm at once, their combined buffer budget (MB) and how long an unused one is kept (s)
+     */
+    public final int preloadMaxCount;
+    public final int preloadBudgetMb;
+    public final int preloadIdleSeconds;
+
+    /**
+     * Size cap for the on-disk cache of https videos (MB), 0 to disable caching
+     */
+    public final int cacheMaxMb;
+
+    /**
+     * Bake short local and pack videos into pre-converted frames on first play, up to this length (s)
+     * and raw frame size (MB); compression is lz4 or none
+     */
+    public final boolean bakeEnabled;
+    public final int bakeMaxSeconds;
+    public final int bakeMaxMb;
+    public final String bakeCompression;
+
+    /**
+     * Memory a looping cutscene may use to keep its decoded frames and audio (MB); longer clips
+     * seek back to the start on each loop instead. 0 to always seek
+     */
+    public final int loopBudgetMb;
+
+    /**
+     * Worker threads shared by every in-world and HUD video surface, 0 to choose from the core count
+     */
+    public final int surfaceDecodeThreads;
+
+    /**
+     * How many steps below full quality the decoder may go while the client can't keep up
+     * (1-2: smaller decode size, 3: skip non-reference frames, 4: half frame rate), 0 to never adapt
+     */
+    public final int maxQualityDrop;
+
+    /**
+     * Media buffered before network videos start or resume after the network stalls (ms): rtmp
+     * live streams use the low-latency target, http/https videos the smooth one. 0 disables
+     */
+    public final int jitterLiveMs;
+    public final int jitterVodMs;
+
+    private CutsceneConfig(Path file) {
+        if (Files.exists(file)) {
+            try (InputStream in = Files.newInputStream(file)) {
+                properties.load(in);
+            } catch (IOException e) {
+                EntsVideoPlayer.LOGGER.error("Failed to read {}, using defaults", file, e);
+            }
+        }
+
+        renderBudgetMs = getDouble("renderBudgetMs", 4.0);
+        maxDecodeWidth = getInt("maxDecodeWidth", 2560);
+        maxDecodeHeight = getInt("maxDecodeHeight", 1440);
+        decoderThreads = Math.max(0, getInt("decoderThreads", 0));
+        decoderThreadType = getChoice("decoderThreadType", "auto", "auto", "frame", "slice");
+        preloadMaxCount = Math.max(0, getInt("preloadMaxCount", 2));
+        preloadBudgetMb = Math.max(0, getInt("preloadBudgetMb", 256));
+        preloadIdleSeconds = Math.max(1, getInt("preloadIdleSeconds", 60));
+        cacheMaxMb = Math.max(0, getInt("cacheMaxMb", 2048));
+        bakeEnabled = getBoolean("bakeEnabled", true);
+        bakeMaxSeconds = Math.max(0, getInt("bakeMaxSeconds", 15));
+        bakeMaxMb = Math.max(0, getInt("bakeMaxMb", 1024));
+        bakeCompression = getChoice("bakeCompression", "lz4", "lz4", "none");
+        loopBudgetMb = Math.max(0, getInt("loopBudgetMb", 256));
+        surfaceDecodeThreads = Math.max(0, getInt("surfaceDecodeThreads", 0));
+        maxQualityDrop = Math.max(0, Math.min(4, getInt("maxQualityDrop", 4)));
+        jitterLiveMs = Math.max(0, getInt("jitterLiveMs", 300));
+        jitterVodMs = Math.max(0, getInt("jitterVodMs", 3000));
+
+        if (dirty) {
+            try (OutputStream out = Files.newOutputStream(file)) {
+                properties.store(out, "Ent's Video Player client settings");
+            } catch (IOException e) {
+                EntsVideoPlayer.LOGGER.warn("Failed to write {}", file, e);
+            }
+        }
+    }
+
+    public static synchronized CutsceneConfig get() {
+        if (instance == null) {
+            instance = new CutsceneConfig(FabricLoader.getInstance().getConfigDir().resolve(FILE_NAME));
+        }
+        return instance;
+    }
+
+    private String getString(String key, String defaultValue) {
+        String value = properties.getProperty(key);
+        if (value == null) {
+            properties.setProperty(key, defaultValue);
+            dirty = true;
+            return defaultValue;
+        }
+        return value.trim();
+    }
+
+    private String getChoice(String key, String defaultValue, String... allowed) {
+        String value = getString(key, defaultValue);
+        for (String option : allowed) {
+            if (option.equalsIgnoreCase(value)) return option;
+        }
+        EntsVideoPlayer.LOGGER.warn("Invalid value for {}: {}, using {}", key, value, defaultValue);
+        return defaultValue;
+    }
+
+    private boolean getBoolean(String key, boolean defaultValue) {
+        return Boolean.parseBoolean(getChoice(key, Boolean.toString(defaultValue), "true", "false"));
+    }
+
+    private double getDouble(String key, double defaultValue) {
+        String value = getString(key, Double.toString(defaultValue));
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            EntsVideoPlayer.LOGGER.warn("Invalid value for {}: {}, using {}", key, value, defaultValue);
+            return defaultValue;
+        }
+    }
+
+    private int getInt(String key, int defaultValue) {
+        String value = getString(key, Integer.toString(defaultValue));
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            EntsVideoPlayer.LOGGER.warn("Invalid value for {}: {}, using {}", key, value, defaultValue);
+            return defaultValue;
+        }
+    }
+}
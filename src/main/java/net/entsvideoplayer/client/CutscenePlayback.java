@@ -0,0 +1,132 @@
+package net.entsvideoplayer.client;
+
+import net.entsvideoplayer.EntsVideoPlayer;
+
+import org.bytedeco.javacv.FrameGrabber;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * A playback backend that feeds {@link CutsceneScreen}: RGBA frames on demand, a presentation
+ * clock and (usually) its own audio output. Implemented by {@link VideoPipeline} (FFmpeg decode)
+ * and {@link BakedPlayback} (pre-converted frames memory-mapped from disk).
+ */
+interface CutscenePlayback {
+
+    /**
+     * Open {@code source} with the cheapest backend available: its baked copy if there is one,
+     * otherwise the FFmpeg pipeline (which may schedule a bake for next time).
+     * Blocking - call off the render thread.
+     */
+    static CutscenePlayback open(String source) throws FrameGrabber.Exception {
+        Path baked = CutsceneBaker.bakedFile(source);
+        if (baked != null && Files.exists(baked)) {
+            try {
+                return BakedPlayback.open(baked);
+            } catch (IOException e) {
+                EntsVideoPlayer.LOGGER.warn("Ignoring unreadable baked cutscene {}", baked, e);
+            }
+        }
+
+        VideoPipeline pipeline = VideoPipeline.open(source);
+        if (baked != null) {
+            CutsceneBaker.bakeIfEligible(source, baked, pipeline);
+        }
+        return pipeline;
+    }
+
+    /**
+     * Get ready to play (open audio, pre-roll frames) without starting the clock. Idempotent.
+     */
+    void prepare();
+
+    /**
+     * Start playback, preparing first if needed.
+     */
+    void start();
+
+    /**
+     * Play again from the start (loop fallback when the clip can't be kept in memory).
+     *
+     * @return false if this backend can't seek back
+     */
+    boolean rewind();
+
+    /**
+     * Continue playback from {@code timestampUs} (stream microseconds). Before {@link #start()}
+     * this sets where playback begins.
+     *
+     * @return false if this backend can't seek
+     */
+    boolean seek(long timestampUs);
+
+    /**
+     * Playlist: this playback has finished; give its audio line to the next entry instead of
+     * closing it. Whatever audio is still queued keeps playing. Call before {@link #close()}.
+     *
+     * @return The line and its writer, or null if there is no audio line to pass on
+     */
+    AudioHandoff detachAudio();
+
+    /**
+     * Playlist: before {@link #start()}, continue on the line detached from the previous entry if
+     * its format matches, so the audio runs on without a gap; otherwise the line is let finish and closed.
+     */
+    void attachAudio(AudioHandoff previous);
+
+    /**
+     * Stop playback and release everything. May block until decoder threads exit and the audio
+     * line has drained, so the render thread hands it to a closer thread.
+     */
+    void close();
+
+    /**
+     * Render thread: next frame, or null if none is ready. Return it with
+     * {@link #releaseFrame(RawFrame)} once a newer frame replaces it.
+     */
+    RawFrame pollFrame();
+
+    /**
+     * Render thread: the next frame's timestamp without taking it (other fields may be unset).
+     */
+    RawFrame peekFrame();
+
+    void releaseFrame(RawFrame frame);
+
+    /**
+     * Render thread: current presentation time in stream microseconds, anchoring the wall clock
+     * to {@code firstFramePtsUs} if nothing has started it yet.
+     */
+    long clockUs(long firstFramePtsUs);
+
+    /**
+     * @return true once every frame has been handed to the renderer
+     */
+    boolean isFinished();
+
+    int getVideoWidth();
+
+    int getVideoHeight();
+
+    int getTargetWidth();
+
+    int getTargetHeight();
+
+    /**
+     * Re-target the frame size to the on-screen size; backends with a fixed size ignore this.
+     */
+    void setTargetSize(int width, int height);
+
+    double getFrameRate();
+
+    int getAudioChannels();
+
+    int getSampleRate();
+
+    /**
+     * @return Approximate memory held by buffered frames and audio while idle (for the preload budget)
+     */
+    long getBufferedBytes();
+}
@@ -6,57 +6,95 @@ import net.minecraft.client.MinecraftClient;
 import net.minecraft.client.gui.DrawContext;
 import net.minecraft.client.gui.screen.Screen;
 import net.minecraft.client.input.KeyInput;
-import net.minecraft.client.texture.NativeImage;
-import net.minecraft.client.texture.NativeImageBackedTexture;
 import net.minecraft.text.Text;
 import net.minecraft.util.Identifier;
 
-import org.bytedeco.javacv.FFmpegFrameGrabber;
-import org.bytedeco.javacv.Frame;
-import javax.sound.sampled.*;
 import java.io.File;
-import java.nio.ByteBuffer;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
 
 public class CutsceneScreen extends Screen {
     private static final Identifier TEXTURE_ID = Identifier.of(EntsVideoPlayer.MOD_ID, "cutscene_frame");
 
-    private final String videoPath;
+    // Entries play back to back; videoPath is the one playing now
+    private final List<String> playlist;
+    private volatile int playlistIndex = 0;
+    private String videoPath;
+    // The next entry, opened and pre-rolled while the current one plays
+    private CompletableFuture<CutscenePlayback> nextEntry;
     private final boolean disableMovement;
     private final boolean hideHud;
-
-    private FFmpegFrameGrabber grabber;
-    private NativeImageBackedTexture videoTexture;
-    private Thread videoThread;
+    private final boolean loop;
+    // Where to begin, or a seek requested before the stream was open; -1 for none
+    private long pendingSeekUs;
+
+    private CutscenePlayback pipeline;
+    private final VideoTexture videoTexture = new VideoTexture(TEXTURE_ID);
+    private Thread openThread;
+    private boolean opening = false;
     private volatile boolean running = true;
+    private volatile boolean streamReady = false;
     private volatile boolean hasFinished = false;
-    private volatile boolean firstVideoFrameSeen = false;
-    
-    @SuppressWarnings("unused")
-    private long startClockNanos = -1;
-    @SuppressWarnings("unused")
-    private long videoStartTimestampUs = -1;
-
-    private int videoWidth = 1920;
-    private int videoHeight = 1080;
+    // Captured when the screen is cleaned up, for resume handles
+    private long stoppedAtUs = 0L;
+    private boolean endedOnStop = false;
 
-    private SourceDataLine audioLine;
+    private volatile int videoWidth = 1920;
+    private volatile int videoHeight = 1080;
 
-    // Queue of Frames decoded by the worker thread (holds up to 3 frames)
-    //private final BlockingQueue<Frame> frameQueue = new LinkedBlockingQueue<>(3);
-    private BlockingQueue<RawFrame> frameQueue = new LinkedBlockingQueue<>(3);
+    // Open latency: from init() to the stream being probed and ready to decode
+    private long openStartNanos;
+    private volatile long openLatencyMs = -1;
 
-    // Timing / scheduling fields (time-based scheduler)
-    private volatile long frameDurationNano = 33_333_333L; // default ~30 FPS
-    private volatile long nextFrameTimeNano = 0L; // when to show next frame (nano)
     private volatile RawFrame lastFrame = null; // last frame that was displayed
 
+    // Render-thread time budget for copying and uploading frames (token bucket, refilled each render)
+    private final long renderBudgetNanos = (long) (CutsceneConfig.get().renderBudgetMs * 1_000_000L);
+    private long videoBudgetNanos = 0L;
+    private long skippedFrames = 0L;
+    // Last on-screen size given to setTargetSize, so the next entry pre-rolls at the same size
+    private volatile int targetWidth = 0;
+    private volatile int targetHeight = 0;
+
     public CutsceneScreen(String videoPath, boolean disableMovement, boolean hideHud) {
+        this(videoPath, disableMovement, hideHud, false);
+    }
+
+    /**
+     * @param loop Play the video over and over until the screen is closed
+     */
+    public CutsceneScreen(String videoPath, boolean disableMovement, boolean hideHud, boolean loop) {
+        this(videoPath, disableMovement, hideHud, loop, 0L);
+    }
+
+    /**
+     * @param loop Play the video over and over until the screen is closed
+     * @param startUs Where to begin playing, in microseconds from the start of the video
+     */
+    public CutsceneScreen(String videoPath, boolean disableMovement, boolean hideHud, boolean loop, long startUs) {
+        this(List.of(videoPath), disableMovement, hideHud, loop, startUs);
+    }
+
+    /**
+     * Play several videos back to back. Each entry is opened and pre-rolled while the one before it
+     * plays, and takes over its texture and audio line, so there is no gap between them.
+     * @param videoPaths Entries in play order, at least one
+     */
+    public CutsceneScreen(List<String> videoPaths, boolean disableMovement, boolean hideHud) {
+        this(videoPaths, disableMovement, hideHud, false, 0L);
+    }
+
+    private CutsceneScreen(List<String> videoPaths, boolean disableMovement, boolean hideHud, boolean loop, long startUs) {
         super(Text.literal("Cutscene"));
-        this.videoPath = videoPath;
+        this.pendingSeekUs = startUs > 0 ? startUs : -1L;
+        this.playlist = List.copyOf(videoPaths);
+        this.videoPath = playlist.get(0);
         this.disableMovement = disableMovement;
         this.hideHud = hideHud;
+        this.loop = loop;
 
     }
 
@@ -64,332 +102,283 @@ public class CutsceneScreen extends Screen {
     protected void init() {
         super.init();
 
-        try {
-            // Check if videoPath is a URL or local file
-            boolean isURL = videoPath.startsWith("https://") || videoPath.startsWith("rtmp://");
-            
-            if (!isURL) {
-                // Local file - check if it exists
-                File videoFile = new File(videoPath);
-                if (!videoFile.exists()) {
-                    EntsVideoPlayer.LOGGER.error("Video file not found: " + videoPath);
-                    close();
-                    return;
-                }
-                EntsVideoPlayer.LOGGER.info("Loading local video: " + videoPath);
-            } else {
-                EntsVideoPlayer.LOGGER.info("Streaming video from URL: " + videoPath);
+        // init() runs again on every resize - only open the stream once
+        if (opening) return;
+        opening = true;
+
+        // Check if videoPath is a URL or local file
+        boolean isURL = videoPath.startsWith("https://") || videoPath.startsWith("rtmp://");
+
+        if (PackVideoSource.isPackUri(videoPath)) {
+            EntsVideoPlayer.LOGGER.info("Streaming video from resource pack: " + videoPath);
+        } else if (!isURL) {
+            // Local file - check if it exists
+            File videoFile = new File(videoPath);
+            if (!videoFile.exists()) {
+                EntsVideoPlayer.LOGGER.error("Video file not found: " + videoPath);
+                close();
+                return;
             }
+            EntsVideoPlayer.LOGGER.info("Loading local video: " + videoPath);
+        } else {
+            EntsVideoPlayer.LOGGER.info("Streaming video from URL: " + videoPath);
+        }
 
-            // Initialize FFmpeg grabber
-
-            grabber = new FFmpegFrameGrabber(videoPath);
-
-            // Force BGR24 so converter gives BufferedImage in a consistent RGB form
-            grabber.setPixelFormat(org.bytedeco.ffmpeg.global.avutil.AV_PIX_FMT_BGR24);
-
-            grabber.start();
+        openStartNanos = System.nanoTime();
+        CompletableFuture<CutscenePlayback> preloaded = PreloadCache.take(videoPath);
+        if (preloaded != null && preloaded.isDone() && !preloaded.isCompletedExceptionally()) {
+            // Already opened and pre-rolled: start on the first frame, no loading state at all
+            adopt(preloaded.join());
+            return;
+        }
 
-            videoWidth = grabber.getImageWidth();
-            videoHeight = grabber.getImageHeight();
+        // Opening and probing can take seconds for network sources, so keep it off the render thread.
+        // The screen shows a loading state until the stream is ready.
+        openThread = new Thread(() -> openStream(preloaded), "Cutscene-Open-Thread");
+        openThread.setDaemon(true);
+        openThread.start();
+    }
 
-            double fps = grabber.getFrameRate();
-            if (fps <= 0 || Double.isNaN(fps) || Double.isInfinite(fps)) {
-                fps = 30.0; // fallback
-            }
-            frameDurationNano = (long) (1_000_000_000.0 / fps);
-            // nextFrameTimeNano is initialized when first frame arrives (below)
-
-            EntsVideoPlayer.LOGGER.info("Video info: {}x{} @ {}fps, {} audio channels @ {}Hz",
-                    videoWidth, videoHeight, fps,
-                    grabber.getAudioChannels(), grabber.getSampleRate());
-
-            //converter = new Java2DFrameConverter();
-
-            // Create texture for video frames with proper format
-            videoTexture = new NativeImageBackedTexture(() -> "cutscene_frame", videoWidth, videoHeight, false);
-            MinecraftClient.getInstance().getTextureManager().registerTexture(TEXTURE_ID, videoTexture);
-
-            // Initialize with black frame
-            NativeImage nativeImage = videoTexture.getImage();
-            if (nativeImage != null) {
-                for (int y = 0; y < videoHeight; y++) {
-                    for (int x = 0; x < videoWidth; x++) {
-                        nativeImage.setColor(x, y, 0xFF000000); // Black with full alpha
-                    }
-                }
-                videoTexture.upload();
+    /**
+     * Runs on the open thread: opens and probes the stream (or waits for a preload that is still
+     * opening), then starts the playback pipeline so the first frames are already queued when the
+     * render thread creates the texture.
+     */
+    private void openStream(CompletableFuture<CutscenePlayback> preloaded) {
+        CutscenePlayback opened = null;
+        try {
+            if (preloaded != null) {
+                opened = awaitPreload(preloaded);
+                if (opened == null && Thread.currentThread().isInterrupted()) return;
             }
-
-            EntsVideoPlayer.LOGGER.info("Created texture: {}x{}", videoWidth, videoHeight);
-
-            // Setup audio if available
-            if (grabber.getAudioChannels() > 0) {
-                try {
-                    AudioFormat audioFormat = new AudioFormat(
-                            (float) grabber.getSampleRate(),
-                            16,
-                            grabber.getAudioChannels(),
-                            true,
-                            false
-                    );
-                    DataLine.Info info = new DataLine.Info(SourceDataLine.class, audioFormat);
-                    audioLine = (SourceDataLine) AudioSystem.getLine(info);
-                    audioLine.open(audioFormat);
-                    audioLine.start();
-                    EntsVideoPlayer.LOGGER.info("Audio initialized: {} channels @ {} Hz",
-                            grabber.getAudioChannels(), grabber.getSampleRate());
-                } catch (Exception e) {
-                    EntsVideoPlayer.LOGGER.error("Failed to initialize audio", e);
-                    audioLine = null;
-                }
+            if (opened == null) {
+                opened = CutscenePlayback.open(videoPath);
             }
-
-            // Start video playback thread
-            videoThread = new Thread(this::playVideo, "Cutscene-Video-Thread");
-            videoThread.setDaemon(true);
-            videoThread.start();
-
+            adopt(opened);
         } catch (Exception e) {
             EntsVideoPlayer.LOGGER.error("Failed to initialize cutscene", e);
-            close();
+            if (opened != null && pipeline == null) {
+                opened.close();
+            }
+            // render() closes the screen on the render thread
+            hasFinished = true;
         }
     }
 
-    private void playVideo() {
+    /**
+     * @return The preloaded pipeline, or null if the preload failed or this thread was interrupted
+     */
+    private CutscenePlayback awaitPreload(CompletableFuture<CutscenePlayback> preloaded) {
         try {
-            Frame frame;
-            int frameCount = 0;
-
-            long startClockNanos = -1;
-            long videoStartTimestampUs = -1;
-
-            
-
-            while (running && (frame = grabber.grab()) != null) {
-                frameCount++;
-
-                if (frame.timestamp >= 0) {
-                    if (videoStartTimestampUs < 0) {
-                        videoStartTimestampUs = frame.timestamp;
-                        startClockNanos = System.nanoTime();
-                    }
-
-                    // Sync clocks
-                    long frameTimestampUs = frame.timestamp - videoStartTimestampUs;
-                    long elapsedUs = (System.nanoTime() - startClockNanos) / 1000;
-
-                    // --------------------------
-                    // 2. If video is ahead → wait
-                    // --------------------------
-                    if (frameTimestampUs > elapsedUs) {
-                        long sleepUs = frameTimestampUs - elapsedUs;
-
-                        // Cap sleep to avoid giant pauses due to network jitter
-                        if (sleepUs > 30000) sleepUs = 30000;
-
-                        try {
-                            Thread.sleep(sleepUs / 1000, (int)(sleepUs % 1000) * 1000);
-                        } catch (InterruptedException ignored) {}
-                    }
-                    // (If video is behind, we just show it immediately)
-                }
-
-                // Process video frame
-                if (frame.image != null) {
-                    ByteBuffer src = (ByteBuffer) frame.image[0];
-
-                    RawFrame raw = new RawFrame();
-                    raw.width = frame.imageWidth;
-                    raw.height = frame.imageHeight;
-
-                    // Determine stride (bytes per row). FFmpegFrameGrabber sometimes supplies this.
-                    int stride = -1;
-                    try {
-                        stride = frame.imageStride;
-                    } catch (Throwable ignored) {}
-
-                    if (stride <= 0) {
-                        // conservative default: assume 3 bytes per pixel tightly packed
-                        stride = raw.width * 3;
-                    }
-                    raw.stride = stride;
-
-                    // Copy only the byte buffer (BGR24) into a direct buffer we own
-                    // We allocate exactly stride * height to be safe
-                    int expected = stride * raw.height;
-                    ByteBuffer copy = ByteBuffer.allocateDirect(expected);
-
-                    // Save/restore position of src and copy
-                    int oldPos = src.position();
-                    src.limit(Math.min(src.limit(), src.position() + expected)); // defensive
-                    copy.put(src);
-                    copy.flip();
-                    src.position(oldPos); // restore for FFmpeg
-
-                    raw.buffer = copy;
-
-                    try {
-                        frameQueue.put(raw); // blocks if full (backpressure)
-                        firstVideoFrameSeen = true;
-                    } catch (InterruptedException e) {
-                        Thread.currentThread().interrupt();
-                        break;
-                    }
-                }
-
-                // Process audio frame
-                if (firstVideoFrameSeen && frame.samples != null && audioLine != null) {
-                    //playAudioFrame(frame);
-                    playAudioFrameSynced(frame, startClockNanos, videoStartTimestampUs);
-                }
-            }
-
-            EntsVideoPlayer.LOGGER.info("Video finished. Processed {} frames", frameCount);
-            hasFinished = true;
-
-        } catch (Exception e) {
-            EntsVideoPlayer.LOGGER.error("Error playing video", e);
-            hasFinished = true;
+            return preloaded.get();
+        } catch (InterruptedException e) {
+            // Screen closed while waiting; nobody else will close the pipeline once it is ready
+            preloaded.whenComplete((p, error) -> {
+                if (p != null) p.close();
+            });
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            EntsVideoPlayer.LOGGER.warn("Preload of {} failed, opening again", videoPath);
+            return null;
         }
     }
 
-    private void playAudioFrameSynced(Frame frame, long startClockNanos, long videoStartTimestampUs) {
-        if (startClockNanos < 0 || videoStartTimestampUs < 0) {
-            // timestamps not ready yet — play immediately (rare)
-            playAudioFrame(frame);
-            return;
+    /**
+     * Take ownership of an opened pipeline and start playback, unless the screen was closed meanwhile.
+     */
+    private void adopt(CutscenePlayback opened) {
+        if (loop) {
+            opened = new LoopPlayback(opened);
+        }
+        videoWidth = opened.getVideoWidth();
+        videoHeight = opened.getVideoHeight();
+
+        openLatencyMs = (System.nanoTime() - openStartNanos) / 1_000_000L;
+        EntsVideoPlayer.LOGGER.info("Opened {} in {} ms", videoPath, openLatencyMs);
+        EntsVideoPlayer.LOGGER.info("Video info: {}x{} @ {}fps, {} audio channels @ {}Hz",
+                videoWidth, videoHeight, opened.getFrameRate(),
+                opened.getAudioChannels(), opened.getSampleRate());
+
+        synchronized (this) {
+            if (!running) {
+                // Screen was closed while we were still opening
+                opened.close();
+                return;
+            }
+            pipeline = opened;
+            if (pendingSeekUs >= 0) {
+                // Sets the start position before any audio plays
+                pipeline.seek(pendingSeekUs);
+            }
+            pipeline.start();
+            openNextEntry();
         }
 
-        long audioTimestampUs = frame.timestamp - videoStartTimestampUs;
-        long elapsedUs = (System.nanoTime() - startClockNanos) / 1000;
+        streamReady = true;
+    }
 
-        // Audio is ahead → wait  
-        if (audioTimestampUs > elapsedUs) {
-            long sleepUs = audioTimestampUs - elapsedUs;
-            if (sleepUs > 30000) sleepUs = 30000;
+    /**
+     * Start opening and pre-rolling the playlist entry after the current one, if there is one.
+     * Uses a preload of it when the mod asked for one.
+     */
+    private synchronized void openNextEntry() {
+        if (playlistIndex + 1 >= playlist.size()) return;
+        String next = playlist.get(playlistIndex + 1);
 
-            try {
-                Thread.sleep(sleepUs / 1000, (int)(sleepUs % 1000) * 1000);
-            } catch (InterruptedException ignored) {}
+        CompletableFuture<CutscenePlayback> preloaded = PreloadCache.take(next);
+        if (preloaded != null) {
+            nextEntry = preloaded;
+            return;
         }
 
-        playAudioFrame(frame);
+        CompletableFuture<CutscenePlayback> future = new CompletableFuture<>();
+        nextEntry = future;
+        Thread thread = new Thread(() -> {
+            try {
+                CutscenePlayback opened = CutscenePlayback.open(next);
+                if (targetWidth > 0) {
+                    opened.setTargetSize(targetWidth, targetHeight); // same texture size as now, if the aspect matches
+                }
+                opened.prepare();
+                future.complete(opened);
+            } catch (Exception e) {
+                future.completeExceptionally(e);
+            }
+        }, "Cutscene-Open-Thread");
+        thread.setDaemon(true);
+        thread.start();
     }
 
     /**
-     * Convert Frame (BGR24 ByteBuffer in frame.image[0]) into NativeImage texture.
-     * This MUST be called from the render thread (we call it there).
+     * Render thread: the current entry has played to the end. Switch to the next one as soon as it
+     * is ready; until then the last frame stays on screen.
+     *
+     * @return false if the playlist is done
      */
-    private void updateTexture(RawFrame frame) {
-        if (frame == null || videoTexture == null) return;
+    private boolean advancePlaylist() {
+        while (nextEntry != null) {
+            if (!nextEntry.isDone()) return true;
 
-        try {
-            NativeImage nativeImage = videoTexture.getImage();
-            if (nativeImage == null) return;
-
-            ByteBuffer buffer = frame.buffer;
-            buffer.rewind();
-
-            int w = Math.min(frame.width, nativeImage.getWidth());
-            int h = Math.min(frame.height, nativeImage.getHeight());
-            int stride = frame.stride;
-            if (stride < w * 3) {
-                // Defensive: if stride is unexpectedly small, treat rows as tightly packed
-                stride = w * 3;
+            CutscenePlayback next;
+            try {
+                next = nextEntry.join();
+            } catch (CompletionException | CancellationException e) {
+                EntsVideoPlayer.LOGGER.error("Failed to open playlist entry {}, skipping it", playlist.get(playlistIndex + 1), e);
+                nextEntry = null;
+                playlistIndex++;
+                openNextEntry();
+                continue;
             }
 
-            // If the copy buffer contains exactly stride*h bytes we can index by row
-            // We'll not change buffer.position permanently (use absolute get).
-            for (int y = 0; y < h; y++) {
-                int rowStart = y * stride;
-                for (int x = 0; x < w; x++) {
-                    int idx = rowStart + x * 3;
-                    // Use absolute get to avoid changing buffer.position unexpectedly
-                    int b = buffer.get(idx) & 0xFF;
-                    int g = buffer.get(idx + 1) & 0xFF;
-                    int r = buffer.get(idx + 2) & 0xFF;
-                    int abgr = 0xFF000000 | (b << 16) | (g << 8) | r;
-                    nativeImage.setColor(x, y, abgr);
-                }
+            long start = System.nanoTime();
+            CutscenePlayback finished = pipeline;
+            // The texture keeps showing it; the frame itself belongs to the finished entry's pool
+            finished.releaseFrame(lastFrame);
+            lastFrame = null;
+            // Same line, still running: the new entry's audio is queued right behind the old tail
+            next.attachAudio(finished.detachAudio());
+            synchronized (this) {
+                nextEntry = null;
+                playlistIndex++;
+                videoPath = playlist.get(playlistIndex);
+                videoWidth = next.getVideoWidth();
+                videoHeight = next.getVideoHeight();
+                pipeline = next;
+                pipeline.start();
             }
-
-            // Upload will happen on render thread (this method is called from render thread)
-            videoTexture.upload();
-        } catch (Exception e) {
-            EntsVideoPlayer.LOGGER.error("Error updating texture", e);
+            closeInBackground(finished);
+            EntsVideoPlayer.LOGGER.info("Playlist: now playing {} ({}/{}), switched in {} ms",
+                    videoPath, playlistIndex + 1, playlist.size(), (System.nanoTime() - start) / 1_000_000L);
+            openNextEntry();
+            return true;
         }
+        return false;
     }
 
-    private void playAudioFrame(Frame frame) {
-        try {
-            if (audioLine == null || frame.samples == null) return;
+    private static void closeInBackground(CutscenePlayback playback) {
+        Thread thread = new Thread(playback::close, "Cutscene-Close-Thread");
+        thread.setDaemon(true);
+        thread.start();
+    }
 
-            int channels = frame.samples.length;
-            int sampleCount = ((java.nio.ShortBuffer) frame.samples[0]).remaining();
+    /**
+     * Create the video texture once stream info is known. Render thread only.
+     */
+    private void createTexture(int textureWidth, int textureHeight) {
+        videoTexture.create(textureWidth, textureHeight);
+        EntsVideoPlayer.LOGGER.info("Created texture: {}x{} for {}x{} video ({} ms after open started)",
+                textureWidth, textureHeight, videoWidth, videoHeight, (System.nanoTime() - openStartNanos) / 1_000_000L);
+    }
 
-            byte[] audioData = new byte[sampleCount * channels * 2];
-            int offset = 0;
+    /**
+     * Take every frame the presentation clock (audio device position, or wall clock without audio)
+     * has reached, but convert and upload only the newest one; the older ones would be overwritten
+     * before they were ever drawn. Uploads are also held back while over the render-thread budget.
+     */
+    private void presentNewestDueFrame() {
+        // Budget refills every rendered frame; an upload spends what it actually cost. 0 disables it.
+        if (renderBudgetNanos > 0) {
+            videoBudgetNanos = Math.min(videoBudgetNanos + renderBudgetNanos, renderBudgetNanos);
+            if (videoBudgetNanos < 0) return;
+        }
 
-            // frame.samples[...] are ShortBuffers per channel
-            for (int i = 0; i < sampleCount; i++) {
-                for (int ch = 0; ch < channels; ch++) {
-                    java.nio.ShortBuffer channelBuffer = (java.nio.ShortBuffer) frame.samples[ch];
-                    short sample = channelBuffer.get(i);
-                    audioData[offset++] = (byte) (sample & 0xFF);
-                    audioData[offset++] = (byte) ((sample >> 8) & 0xFF);
-                }
+        RawFrame newest = null;
+        RawFrame next;
+        while ((next = pipeline.peekFrame()) != null && next.timestampUs <= pipeline.clockUs(next.timestampUs)) {
+            RawFrame taken = pipeline.pollFrame();
+            if (taken == null) break;
+            if (newest != null) {
+                // Superseded before it was drawn: straight back to the pool, no conversion or upload
+                pipeline.releaseFrame(newest);
+                skippedFrames++;
             }
-
-            audioLine.write(audioData, 0, audioData.length);
-        } catch (Exception e) {
-            EntsVideoPlayer.LOGGER.error("Error playing audio", e);
+            newest = taken;
         }
+        if (newest == null) return;
+
+        long start = System.nanoTime();
+        // The previous frame is no longer needed once the new one is uploaded
+        pipeline.releaseFrame(lastFrame);
+        lastFrame = newest;
+        videoTexture.upload(lastFrame);
+        videoBudgetNanos -= System.nanoTime() - start;
     }
 
     @Override
     public void render(DrawContext context, int mouseX, int mouseY, float delta) {
-        if (hasFinished) {
+        if (hasFinished || (pipeline != null && pipeline.isFinished() && !advancePlaylist())) {
             close();
             return;
         }
 
-        // Getting Screen Size
-
-
-        final long now = System.nanoTime();
-
-        // If we haven't started timing yet (no frames decoded yet), set start to now
-        if (nextFrameTimeNano == 0L) nextFrameTimeNano = now;
-
-        // Advance frame(s) as many times as needed to catch up to "now".
-        // This will consume frames from the queue and call updateTexture(...) on render thread.
-        while (now >= nextFrameTimeNano) {
-            RawFrame polled = frameQueue.poll(); // non-blocking
-            if (polled != null) {
-                lastFrame = polled;
-                updateTexture(lastFrame);
-            }
-            nextFrameTimeNano += frameDurationNano;
+        if (!streamReady) {
+            // Still opening/probing on the background thread
+            context.fill(0, 0, width, height, 0xFF000000);
+            context.drawCenteredTextWithShadow(textRenderer, Text.literal("Loading..."), width / 2, height / 2, 0xFFFFFFFF);
+            super.render(context, mouseX, mouseY, delta);
+            return;
+        }
 
-            // If no frames were available this pass, break (we'll try again next render)
-            if (polled == null) break;
+        if (!videoTexture.exists()) {
+            createTexture(pipeline.getTargetWidth(), pipeline.getTargetHeight());
         }
 
+        presentNewestDueFrame();
+
         // Render black background
         context.fill(0, 0, width, height, 0xFF000000);
 
         // Draw the last uploaded texture (could be the initial black frame or last decoded)
-        if (videoTexture != null) {
+        if (videoTexture.exists()) {
             var client = MinecraftClient.getInstance();
             var window = client.getWindow();
 
             int guiWidth = window.getScaledWidth();
             int guiHeight = window.getScaledHeight();
 
-            NativeImage texImg = videoTexture.getImage();
-            int texW = texImg != null ? texImg.getWidth() : videoWidth;
-            int texH = texImg != null ? texImg.getHeight() : videoHeight;
+            int texW = videoTexture.getWidth();
+            int texH = videoTexture.getHeight();
 
             float videoAspect = (float) videoWidth / videoHeight;
             float screenAspect = (float) guiWidth / height;
@@ -408,6 +397,11 @@ public class CutsceneScreen extends Screen {
                 renderY = (guiHeight - renderHeight) / 2;
             }
 
+            // Decode at the size the video actually covers on screen, in framebuffer pixels
+            targetWidth = renderWidth * window.getFramebufferWidth() / Math.max(1, guiWidth);
+            targetHeight = renderHeight * window.getFramebufferHeight() / Math.max(1, guiHeight);
+            pipeline.setTargetSize(targetWidth, targetHeight);
+
             EntsVideoPlayer.LOGGER.debug("Updated GUI scaled: {}x{}, tex: {}x{}, render: {}x{} @ ({},{}) screenAspect={}, videoAspect={}",
                 guiWidth, guiHeight, texW, texH, renderWidth, renderHeight, renderX, renderY, screenAspect, videoAspect);
 
@@ -457,44 +451,100 @@ public class CutsceneScreen extends Screen {
         CutsceneManager.stopCutscene();
     }
 
+    /**
+     * Stop playback and release everything. Only the first call does anything: close() runs it and
+     * then CutsceneManager.stopCutscene() runs it again.
+     */
     public void cleanup() {
-        running = false;
+        CutscenePlayback pipelineToClose;
+        CompletableFuture<CutscenePlayback> nextToClose;
+        synchronized (this) {
+            if (!running) return;
+            stoppedAtUs = getPositionUs();
+            endedOnStop = hasEnded();
+            running = false;
+            pipelineToClose = pipeline;
+            nextToClose = nextEntry;
+            nextEntry = null;
+        }
 
-        if (videoThread != null && videoThread.isAlive()) {
-            try {
-                videoThread.interrupt();
-                videoThread.join(1000);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-            }
+        if (skippedFrames > 0) {
+            EntsVideoPlayer.LOGGER.info("Skipped {} superseded frames without uploading them", skippedFrames);
         }
 
-        if (grabber != null) {
-            try {
-                grabber.stop();
-                grabber.release();
-            } catch (Exception e) {
-                EntsVideoPlayer.LOGGER.error("Error stopping grabber", e);
-            }
+        if (nextToClose != null) {
+            // Runs right here if the entry is already open
+            nextToClose.whenComplete((p, error) -> {
+                if (p != null) closeInBackground(p);
+            });
         }
 
-        /*if (converter != null) {
-            converter.close();
-        }*/
+        // A still-opening stream closes its own pipeline once open() returns
+        if (openThread != null && openThread.isAlive()) {
+            openThread.interrupt();
+        }
 
-        if (audioLine != null) {
-            audioLine.drain();
-            audioLine.stop();
-            audioLine.close();
+        if (pipelineToClose != null) {
+            // Waits for the decoder threads and drains the line: never on the render thread
+            closeInBackground(pipelineToClose);
         }
 
-        if (videoTexture != null) {
-            MinecraftClient.getInstance().getTextureManager().destroyTexture(TEXTURE_ID);
-            videoTexture.close();
-            videoTexture = null;
+        videoTexture.close();
+
+        lastFrame = null;
+    }
+
+    /**
+     * Render thread: continue from {@code timestampUs}. The last frame stays on screen until the
+     * first frame at the new position is ready.
+     */
+    public synchronized void seek(long timestampUs) {
+        if (pipeline == null) {
+            pendingSeekUs = Math.max(timestampUs, 0L); // applied once the stream is open
+        } else if (!pipeline.seek(timestampUs)) {
+            EntsVideoPlayer.LOGGER.warn("Cannot seek {} to {} ms", videoPath, timestampUs / 1000L);
+        }
+    }
+
+    /**
+     * @return Stream time of the frame on screen, or of where playback will begin if none is yet
+     */
+    public long getPositionUs() {
+        if (!running) return stoppedAtUs;
+        RawFrame shown = lastFrame;
+        if (shown != null) return shown.timestampUs;
+        return Math.max(pendingSeekUs, 0L);
+    }
+
+    /**
+     * @return true once the video played to its end (or failed to open)
+     */
+    public boolean hasEnded() {
+        if (!running) return endedOnStop;
+        CutscenePlayback playback = pipeline;
+        return hasFinished || (playback != null && playback.isFinished() && nextEntry == null);
+    }
+
+    /**
+     * @return Index of the playlist entry playing now (0 for a single video)
+     */
+    public int getPlaylistIndex() {
+        return playlistIndex;
+    }
+
+    @Override
+    public void removed() {
+        // Replaced by another screen without close() (e.g. a disconnect): stop, but leave that screen up
+        if (running) {
+            CutsceneManager.onCutsceneReplaced(this);
         }
+    }
 
-        frameQueue.clear();
+    /**
+     * @return Time from init() until the stream was opened and probed, or -1 while still opening
+     */
+    public long getOpenLatencyMs() {
+        return openLatencyMs;
     }
 
     @Override
@@ -515,12 +565,5 @@ public class CutsceneScreen extends Screen {
         return hideHud;
     }
 
-    private static class RawFrame {
-        ByteBuffer buffer;
-        int width, height;
-        int stride;
-    }
-
-
 }
 
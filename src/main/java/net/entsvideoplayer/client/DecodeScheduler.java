@@ -0,0 +1,121 @@
+package net.entsvideoplayer.client;
+
+import net.entsvideoplayer.EntsVideoPlayer;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Decodes every {@link VideoSurface} on one small, fixed pool of worker threads instead of a
+ * thread per video. A worker always takes the most important surface that has room for another
+ * frame: the biggest on screen first, culled ones last, paused ones never. So the CPU spent follows
+ * what the player can see, however many surfaces exist.
+ */
+final class DecodeScheduler {
+    // Idle workers recheck this often even without a wake-up, for frames that became due meanwhile
+    private static final long IDLE_WAIT_MS = 10L;
+
+    private static DecodeScheduler instance;
+
+    private final List<VideoSurface> surfaces = new CopyOnWriteArrayList<>();
+    private final Object signal = new Object();
+    // Opening a source (network, probing) can take seconds; keep it off the decode workers
+    private final ExecutorService opener = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "Cutscene-Surface-Open-Thread");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    static synchronized DecodeScheduler get() {
+        if (instance == null) {
+            instance = new DecodeScheduler();
+        }
+        return instance;
+    }
+
+    private DecodeScheduler() {
+        int configured = CutsceneConfig.get().surfaceDecodeThreads;
+        int workers = configured > 0 ? configured : Math.max(1, Runtime.getRuntime().availableProcessors() / 4);
+        for (int i = 0; i < workers; i++) {
+            Thread thread = new Thread(this::runWorker, "Cutscene-Decode-Worker-" + i);
+            thread.setDaemon(true);
+            thread.start();
+        }
+        EntsVideoPlayer.LOGGER.info("Surface decode scheduler: {} workers ({})", workers, configured > 0 ? "config" : "auto");
+    }
+
+    /**
+     * Open {@code surface} in the background and start scheduling it.
+     */
+    void add(VideoSurface surface) {
+        opener.execute(() -> {
+            if (surface.open()) {
+                surfaces.add(surface);
+                // Closed between opening and being added: close() already looked for it
+                if (surface.isClosed()) surfaces.remove(surface);
+                wake();
+            }
+        });
+    }
+
+    void remove(VideoSurface surface) {
+        surfaces.remove(surface);
+    }
+
+    /**
+     * A surface has room for more frames (one was shown, or it came back into view).
+     */
+    void wake() {
+        synchronized (signal) {
+            signal.notifyAll();
+        }
+    }
+
+    private void runWorker() {
+        while (true) {
+            VideoSurface surface = claimNext();
+            if (surface == null) {
+                synchronized (signal) {
+                    try {
+                        signal.wait(IDLE_WAIT_MS);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                continue;
+            }
+            try {
+                surface.step();
+            } catch (Exception e) {
+                EntsVideoPlayer.LOGGER.error("Error decoding video surface", e);
+            } finally {
+                surface.release();
+            }
+        }
+    }
+
+    /**
+     * @return The highest priority surface that wants a frame, claimed for this worker, or null
+     */
+    private VideoSurface claimNext() {
+        while (true) {
+            long now = System.nanoTime();
+            VideoSurface best = null;
+            long bestPriority = -1L;
+            for (VideoSurface surface : surfaces) {
+                if (!surface.wantsWork(now)) continue;
+                long priority = surface.priority(now);
+                // Equal priorities take turns: the one that waited longest goes first
+                if (priority > bestPriority || (priority == bestPriority && surface.lastStepNanos() < best.lastStepNanos())) {
+                    best = surface;
+                    bestPriority = priority;
+                }
+            }
+            if (best == null) return null;
+            if (best.tryClaim()) return best;
+            // Another worker took it first; look again
+        }
+    }
+}
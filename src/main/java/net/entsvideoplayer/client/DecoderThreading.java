@@ -0,0 +1,136 @@
+package net.entsvideoplayer.client;
+
+import net.entsvideoplayer.EntsVideoPlayer;
+
+import org.bytedeco.ffmpeg.avcodec.AVCodecParameters;
+import org.bytedeco.ffmpeg.avformat.AVFormatContext;
+import org.bytedeco.ffmpeg.avformat.AVInputFormat;
+import org.bytedeco.ffmpeg.avutil.AVDictionary;
+import org.bytedeco.javacpp.BytePointer;
+import org.bytedeco.javacv.FFmpegFrameGrabber;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.bytedeco.ffmpeg.global.avcodec.avcodec_get_name;
+import static org.bytedeco.ffmpeg.global.avformat.avformat_close_input;
+import static org.bytedeco.ffmpeg.global.avformat.avformat_open_input;
+import static org.bytedeco.ffmpeg.global.avutil.AVMEDIA_TYPE_VIDEO;
+
+/**
+ * Picks the codec's threading mode and thread count for a source.
+ * <p>
+ * Thread options have to be set before the decoder is opened, which is before the grabber reports
+ * the codec or resolution. Local files are therefore probed by reading only the container header;
+ * other sources reuse what the last open of the same URL reported, or assume 1080p H.264.
+ */
+final class DecoderThreading {
+    // Codec work per pixel relative to H.264
+    private static final Map<String, Double> CODEC_COST = Map.of(
+            "h264", 1.0,
+            "hevc", 1.6,
+            "vp9", 1.5,
+            "av1", 2.0,
+            "libdav1d", 2.0,
+            "mpeg4", 0.6,
+            "mpeg2video", 0.5,
+            "vp8", 0.8
+    );
+    // Decoder threads per H.264-equivalent 1080p stream
+    private static final double THREADS_PER_1080P = 4.0;
+    private static final double PIXELS_1080P = 1920.0 * 1080.0;
+    // FFmpeg's H.264/HEVC frame threading stops scaling (and adds latency) beyond this
+    private static final int MAX_THREADS = 16;
+
+    private static final StreamInfo DEFAULT_INFO = new StreamInfo("h264", 1920, 1080);
+    // Codec and size seen on the last successful open, for sources that can't be probed cheaply
+    private static final Map<String, StreamInfo> lastSeen = new ConcurrentHashMap<>();
+
+    private DecoderThreading() {}
+
+    /**
+     * @param threads Number of decoder threads
+     * @param type FFmpeg {@code thread_type}: "frame" or "slice"
+     * @param auto Chosen from the stream (false if set by the user)
+     */
+    record Choice(int threads, String type, boolean auto) {
+        void apply(FFmpegFrameGrabber grabber) {
+            grabber.setVideoOption("threads", Integer.toString(threads));
+            grabber.setVideoOption("thread_type", type);
+        }
+    }
+
+    private record StreamInfo(String codec, int width, int height) {}
+
+    /**
+     * Choose the threading for {@code source}, honouring the user's overrides.
+     *
+     * @param lowLatency Frame threading buffers one frame per thread, so live sources use slice threading
+     */
+    static Choice choose(String source, boolean lowLatency) {
+        CutsceneConfig config = CutsceneConfig.get();
+        StreamInfo info = probe(source);
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        // Keep cores free for the render, server and chunk builder threads and our own pipeline stages
+        int reserved = Math.max(2, cores / 4);
+        int available = Math.max(1, cores - reserved);
+
+        double cost = CODEC_COST.getOrDefault(info.codec, 1.0);
+        double load = cost * (info.width * (double) info.height) / PIXELS_1080P;
+        int wanted = (int) Math.ceil(THREADS_PER_1080P * load);
+        int threads = Math.max(1, Math.min(Math.min(wanted, available), MAX_THREADS));
+        String type = lowLatency ? "slice" : "frame";
+
+        boolean auto = true;
+        if (config.decoderThreads > 0) {
+            threads = Math.min(config.decoderThreads, MAX_THREADS);
+            auto = false;
+        }
+        if (!config.decoderThreadType.equals("auto")) {
+            type = config.decoderThreadType;
+            auto = false;
+        }
+
+        EntsVideoPlayer.LOGGER.info("Decoder threading: {} x {} ({}, {} {}x{}, {} cores)",
+                threads, type, auto ? "auto" : "config", info.codec, info.width, info.height, cores);
+        return new Choice(threads, type, auto);
+    }
+
+    /**
+     * Remember what an opened source turned out to be, so the next open of it is tuned correctly.
+     */
+    static void remember(String source, FFmpegFrameGrabber grabber) {
+        String codec = grabber.getVideoCodecName();
+        if (codec != null && !codec.isEmpty() && grabber.getImageWidth() > 0) {
+            lastSeen.put(source, new StreamInfo(codec.toLowerCase(Locale.ROOT), grabber.getImageWidth(), grabber.getImageHeight()));
+        }
+    }
+
+    private static StreamInfo probe(String source) {
+        StreamInfo known = lastSeen.get(source);
+        if (known != null) return known;
+        if (source.contains("://")) return DEFAULT_INFO; // a second connection costs more than it saves
+
+        // Header only, no avformat_find_stream_info: MP4/MKV/WebM carry codec and size in the header
+        AVFormatContext format = new AVFormatContext(null);
+        if (avformat_open_input(format, source, (AVInputFormat) null, (AVDictionary) null) < 0) {
+            return DEFAULT_INFO;
+        }
+        try {
+            for (int i = 0; i < format.nb_streams(); i++) {
+                AVCodecParameters par = format.streams(i).codecpar();
+                if (par.codec_type() == AVMEDIA_TYPE_VIDEO && par.width() > 0) {
+                    BytePointer name = avcodec_get_name(par.codec_id());
+                    StreamInfo info = new StreamInfo(name.getString(), par.width(), par.height());
+                    lastSeen.put(source, info);
+                    return info;
+                }
+            }
+        } finally {
+            avformat_close_input(format);
+        }
+        return DEFAULT_INFO;
+    }
+}
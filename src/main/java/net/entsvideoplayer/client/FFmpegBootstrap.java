@@ -0,0 +1,105 @@
+package net.entsvideoplayer.client;
+
+import net.entsvideoplayer.EntsVideoPlayer;
+import net.minecraft.client.MinecraftClient;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Loads the FFmpeg natives in the background, so the client reaches the title screen without
+ * waiting for jar downloads, native extraction and classpath injection. Cutscenes requested before
+ * loading finishes are queued and start, in order, on the client thread as soon as it does.
+ */
+public final class FFmpegBootstrap {
+    private static final Queue<Runnable> pending = new ArrayDeque<>();
+    private static CompletableFuture<Boolean> loading;
+    private static long startNanos;
+    private static volatile boolean ready = false;
+    private static volatile boolean failed = false;
+
+    private FFmpegBootstrap() {}
+
+    /**
+     * Start loading in the background. Does nothing if already started.
+     */
+    public static synchronized void start() {
+        if (loading != null) return;
+        startNanos = System.nanoTime();
+        loading = new FFmpegNativeLoader().loadAsync(progress ->
+                EntsVideoPlayer.LOGGER.debug("FFmpeg bootstrap: {} ({}%)", progress.message(), progress.percentage()));
+        loading.whenComplete((loaded, error) -> finish(error == null && Boolean.TRUE.equals(loaded)));
+    }
+
+    public static boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Run {@code action} on the client thread once FFmpeg is loaded: right away if it already is,
+     * otherwise after the actions queued before it. Dropped if loading failed.
+     */
+    public static void whenReady(Runnable action) {
+        synchronized (FFmpegBootstrap.class) {
+            if (failed) {
+                EntsVideoPlayer.LOGGER.error("FFmpeg failed to load, cannot play video");
+                return;
+            }
+            if (!ready || !pending.isEmpty()) {
+                pending.add(action);
+                EntsVideoPlayer.LOGGER.info("Video request queued until FFmpeg is loaded ({} waiting)", pending.size());
+                start();
+                return;
+            }
+        }
+        MinecraftClient.getInstance().execute(action);
+    }
+
+    /**
+     * Block until loading has finished. For background threads only.
+     * @return True if FFmpeg is usable
+     */
+    public static boolean awaitReady() {
+        CompletableFuture<Boolean> future;
+        synchronized (FFmpegBootstrap.class) {
+            start();
+            future = loading;
+        }
+        future.join();
+        return ready;
+    }
+
+    private static void finish(boolean loaded) {
+        int queued;
+        synchronized (FFmpegBootstrap.class) {
+            ready = loaded;
+            failed = !loaded;
+            queued = pending.size();
+        }
+        long elapsedMs = (System.nanoTime() - startNanos) / 1_000_000L;
+        if (loaded) {
+            EntsVideoPlayer.LOGGER.info("FFmpeg ready in the background after {} ms, {} queued requests", elapsedMs, queued);
+        } else {
+            EntsVideoPlayer.LOGGER.error("Failed to load FFmpeg after {} ms - {} queued requests dropped", elapsedMs, queued);
+        }
+        MinecraftClient.getInstance().execute(FFmpegBootstrap::runPending);
+    }
+
+    /**
+     * Client thread: run everything queued while loading.
+     */
+    private static void runPending() {
+        while (true) {
+            Runnable action;
+            synchronized (FFmpegBootstrap.class) {
+                action = pending.poll();
+                if (action == null || failed) {
+                    pending.clear();
+                    return;
+                }
+            }
+            action.run();
+        }
+    }
+}
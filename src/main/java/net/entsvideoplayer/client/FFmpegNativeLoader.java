@@ -7,17 +7,33 @@ import org.slf4j.LoggerFactory;
 import java.io.*;
 import java.net.HttpURLConnection;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
 
 public class FFmpegNativeLoader {
     private static final Logger LOGGER = LoggerFactory.getLogger("FFmpegNativeLoader");
     private static final AtomicBoolean LOADED = new AtomicBoolean(false);
     private static final AtomicBoolean LOADING = new AtomicBoolean(false);
+    private static boolean librariesLoaded = false;
     
     // Configuration
+    private static final int DOWNLOAD_BUFFER_SIZE = 64 * 1024;
+    private static final int DOWNLOAD_ATTEMPTS = 3;
+    // Written into the natives directory after a complete extraction
+    private static final String STAMP_FILE = ".extracted";
     private static final String FFMPEG_VERSION = "6.1.1-1.5.10";
     private static final String MAVEN_REPO = "https://repo1.maven.org/maven2";
     private static final String GROUP_PATH = "org/bytedeco/ffmpeg";
@@ -27,8 +43,14 @@ public class FFmpegNativeLoader {
     
     public FFmpegNativeLoader() {
         // Get mod config directory
-        Path configDir = FabricLoader.getInstance().getConfigDir();
-        this.libDir = configDir.getParent().resolve("mods").resolve("entsvideoplayer-lib");
+        this(FabricLoader.getInstance().getConfigDir().getParent().resolve("mods").resolve("entsvideoplayer-lib"));
+    }
+    
+    /**
+     * @param libDir Where downloaded jars and extracted natives are kept
+     */
+    FFmpegNativeLoader(Path libDir) {
+        this.libDir = libDir;
         this.platform = detectPlatform();
         
         try {
@@ -60,38 +82,7 @@ public class FFmpegNativeLoader {
         }
         
         try {
-            LOGGER.info("Loading FFmpeg natives for platform: {}", platform);
-            
-            if (platform == null) {
-                LOGGER.error("Unsupported platform");
-                return false;
-            }
-            
-            // Download all required JARs
-            Path javacppJar = getOrDownloadJavaCppJar();
-            Path javacvJar = getOrDownloadJavaCvJar();
-            Path ffmpegJar = getOrDownloadFfmpegJar();
-            Path ffmpegPlatformJar = getOrDownloadFfmpegPlatformJar();
-            
-            if (javacppJar == null || javacvJar == null || ffmpegJar == null || ffmpegPlatformJar == null) {
-                return false;
-            }
-            
-            // CRITICAL: Extract natives BEFORE adding to classpath
-            if (!extractAndConfigureNatives(ffmpegPlatformJar)) {
-                return false;
-            }
-            
-            // Now add all JARs to classpath
-            addToClasspath(javacppJar);
-            addToClasspath(javacvJar);
-            addToClasspath(ffmpegJar);
-            addToClasspath(ffmpegPlatformJar);
-            
-            LOADED.set(true);
-            LOGGER.info("FFmpeg loaded successfully");
-            return true;
-            
+            return load(progress -> {});
         } catch (Exception e) {
             LOGGER.error("Failed to load FFmpeg natives", e);
             return false;
@@ -101,7 +92,7 @@ public class FFmpegNativeLoader {
     }
     
     /**
-     * Load FFmpeg natives asynchronously
+     * Load FFmpeg natives asynchronously, on a thread of its own
      */
     public CompletableFuture<Boolean> loadAsync(Consumer<LoadProgress> progressCallback) {
         return CompletableFuture.supplyAsync(() -> {
@@ -122,174 +113,402 @@ public class FFmpegNativeLoader {
             }
             
             try {
-                progressCallback.accept(new LoadProgress("Checking FFmpeg natives...", 0));
-                
-                if (platform == null) {
-                    LOGGER.error("Unsupported platform");
-                    return false;
-                }
-                
-                progressCallback.accept(new LoadProgress("Downloading JavaCPP...", 10));
-                Path javacppJar = getOrDownloadJavaCppJar();
-                if (javacppJar == null) return false;
-                
-                progressCallback.accept(new LoadProgress("Downloading JavaCV...", 20));
-                Path javacvJar = getOrDownloadJavaCvJar();
-                if (javacvJar == null) return false;
-                
-                progressCallback.accept(new LoadProgress("Downloading FFmpeg...", 35));
-                Path ffmpegJar = getOrDownloadFfmpegJar();
-                if (ffmpegJar == null) return false;
-                
-                progressCallback.accept(new LoadProgress("Downloading FFmpeg natives...", 50));
-                Path ffmpegPlatformJar = getOrDownloadFfmpegPlatformJar();
-                if (ffmpegPlatformJar == null) return false;
-                
-                progressCallback.accept(new LoadProgress("Extracting natives...", 65));
-                if (!extractAndConfigureNatives(ffmpegPlatformJar)) {
-                    return false;
-                }
-                
-                progressCallback.accept(new LoadProgress("Loading into classpath...", 80));
-                addToClasspath(javacppJar);
-                addToClasspath(javacvJar);
-                addToClasspath(ffmpegJar);
-                addToClasspath(ffmpegPlatformJar);
-                
-                progressCallback.accept(new LoadProgress("Complete!", 100));
-                LOADED.set(true);
-                return true;
-                
+                return load(progressCallback);
             } catch (Exception e) {
                 LOGGER.error("Failed to load FFmpeg natives", e);
                 return false;
             } finally {
                 LOADING.set(false);
             }
-        });
+        }, FFmpegNativeLoader::runOnLoaderThread);
     }
     
-    private Path getOrDownloadJavaCppJar() {
-        String jarName = "javacpp-1.5.10.jar";
-        Path jarPath = libDir.resolve(jarName);
+    private static void runOnLoaderThread(Runnable task) {
+        Thread thread = new Thread(task, "FFmpeg-Loader-Thread");
+        thread.setDaemon(true);
+        // addToClasspath injects into the context class loader, which has to be the mod's (Knot) loader
+        thread.setContextClassLoader(FFmpegNativeLoader.class.getClassLoader());
+        thread.start();
+    }
+    
+    /**
+     * Download (if needed), extract (if needed) and put everything on the classpath, logging how
+     * long each part took. The libraries themselves load with the first video
+     * ({@link #loadLibraries()}).
+     */
+    private boolean load(Consumer<LoadProgress> progressCallback) throws Exception {
+        long startNanos = System.nanoTime();
+        LOGGER.info("Loading FFmpeg natives for platform: {}", platform);
+        progressCallback.accept(new LoadProgress("Checking FFmpeg natives...", 0));
         
-        if (Files.exists(jarPath)) {
-            LOGGER.info("JavaCPP JAR already exists: {}", jarPath);
-            return jarPath;
+        if (platform == null) {
+            LOGGER.error("Unsupported platform");
+            return false;
         }
         
-        String downloadUrl = "https://repo1.maven.org/maven2/org/bytedeco/javacpp/1.5.10/javacpp-1.5.10.jar";
-        LOGGER.info("Downloading JavaCPP from: {}", downloadUrl);
+        // All four jars download at once; progress covers their combined size
+        List<Path> jars = getOrDownloadAll(progressCallback, 60);
+        if (jars == null) return false;
+        long jarsNanos = System.nanoTime();
         
-        try {
-            downloadFile(downloadUrl, jarPath);
-            return jarPath;
-        } catch (IOException e) {
-            LOGGER.error("Failed to download JavaCPP JAR", e);
-            return null;
+        // CRITICAL: Extract natives BEFORE adding to classpath (the platform jar is last)
+        progressCallback.accept(new LoadProgress("Extracting natives...", 65));
+        if (!extractAndConfigureNatives(jars.get(jars.size() - 1))) {
+            return false;
         }
-    }
-    
-    private Path getOrDownloadJavaCvJar() {
-        String jarName = "javacv-1.5.10.jar";
-        Path jarPath = libDir.resolve(jarName);
+        long nativesNanos = System.nanoTime();
         
-        if (Files.exists(jarPath)) {
-            LOGGER.info("JavaCV JAR already exists: {}", jarPath);
-            return jarPath;
+        progressCallback.accept(new LoadProgress("Loading into classpath...", 80));
+        for (Path jar : jars) {
+            addToClasspath(jar);
         }
+        long endNanos = System.nanoTime();
         
-        String downloadUrl = "https://repo1.maven.org/maven2/org/bytedeco/javacv/1.5.10/javacv-1.5.10.jar";
-        LOGGER.info("Downloading JavaCV from: {}", downloadUrl);
-        
+        progressCallback.accept(new LoadProgress("Complete!", 100));
+        LOADED.set(true);
+        LOGGER.info("FFmpeg loaded in {} ms (jars {} ms, natives {} ms, classpath {} ms)",
+            (endNanos - startNanos) / 1_000_000L, (jarsNanos - startNanos) / 1_000_000L,
+            (nativesNanos - jarsNanos) / 1_000_000L, (endNanos - nativesNanos) / 1_000_000L);
+        return true;
+    }
+    
+    /**
+     * A jar this loader needs from Maven Central.
+     */
+    record Artifact(String label, String fileName, String url) {}
+    
+    private List<Artifact> artifacts() {
+        return List.of(
+            new Artifact("JavaCPP", "javacpp-1.5.10.jar",
+                MAVEN_REPO + "/org/bytedeco/javacpp/1.5.10/javacpp-1.5.10.jar"),
+            new Artifact("JavaCV", "javacv-1.5.10.jar",
+                MAVEN_REPO + "/org/bytedeco/javacv/1.5.10/javacv-1.5.10.jar"),
+            new Artifact("FFmpeg", String.format("ffmpeg-%s.jar", FFMPEG_VERSION),
+                String.format("%s/%s/%s/ffmpeg-%s.jar", MAVEN_REPO, GROUP_PATH, FFMPEG_VERSION, FFMPEG_VERSION)),
+            new Artifact("FFmpeg natives", String.format("ffmpeg-%s-%s.jar", FFMPEG_VERSION, platform),
+                String.format("%s/%s/%s/ffmpeg-%s-%s.jar", MAVEN_REPO, GROUP_PATH, FFMPEG_VERSION, FFMPEG_VERSION, platform)));
+    }
+    
+    /**
+     * Make sure every jar is present and intact, downloading the missing ones in parallel.
+     * @param progress Receives overall download progress, mapped onto 0-{@code maxPercent}
+     * @return The jars in {@link #artifacts()} order, or null if any of them failed
+     */
+    private List<Path> getOrDownloadAll(Consumer<LoadProgress> progress, int maxPercent) {
+        List<Artifact> artifacts = artifacts();
+        DownloadProgress tracker = new DownloadProgress(progress, maxPercent);
+        ExecutorService executor = Executors.newFixedThreadPool(artifacts.size(), runnable -> {
+            Thread thread = new Thread(runnable, "FFmpeg-Download-Thread");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long startNanos = System.nanoTime();
         try {
-            downloadFile(downloadUrl, jarPath);
-            return jarPath;
-        } catch (IOException e) {
-            LOGGER.error("Failed to download JavaCV JAR", e);
+            List<Future<Path>> futures = new ArrayList<>();
+            for (Artifact artifact : artifacts) {
+                futures.add(executor.submit(() -> getOrDownload(artifact, tracker)));
+            }
+            
+            List<Path> jars = new ArrayList<>();
+            boolean failed = false;
+            for (Future<Path> future : futures) {
+                Path jar = future.get();
+                failed |= jar == null;
+                jars.add(jar);
+            }
+            if (failed) {
+                return null;
+            }
+            if (tracker.downloadedBytes() > 0) {
+                LOGGER.info("Downloaded {} MB in {} ms", tracker.downloadedBytes() >> 20,
+                    (System.nanoTime() - startNanos) / 1_000_000L);
+            }
+            return jars;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            LOGGER.error("Native download failed", e.getCause());
             return null;
+        } finally {
+            executor.shutdownNow();
         }
     }
     
-    private Path getOrDownloadFfmpegJar() {
-        String jarName = String.format("ffmpeg-%s.jar", FFMPEG_VERSION);
-        Path jarPath = libDir.resolve(jarName);
+    /**
+     * @return The verified jar for {@code artifact}, downloading it if missing or corrupt, or null on failure
+     */
+    Path getOrDownload(Artifact artifact, DownloadProgress tracker) {
+        Path jarPath = libDir.resolve(artifact.fileName());
+        Path sha1Path = libDir.resolve(artifact.fileName() + ".sha1");
         
-        if (Files.exists(jarPath)) {
-            LOGGER.info("FFmpeg JAR already exists: {}", jarPath);
-            return jarPath;
+        try {
+            if (Files.exists(jarPath)) {
+                String[] recorded = Files.exists(sha1Path) ? Files.readString(sha1Path).trim().split("\\s+") : null;
+                if (recorded != null && recorded.length == 3 && recorded[1].equals(Long.toString(Files.size(jarPath)))
+                        && recorded[2].equals(Long.toString(Files.getLastModifiedTime(jarPath).toMillis()))) {
+                    // Unchanged since it was last verified; no need to hash it again
+                    LOGGER.debug("{} JAR already exists: {}", artifact.label(), jarPath);
+                    return jarPath;
+                }
+                // Downloaded before checksums were kept: check it once against Maven
+                String expected = recorded != null ? recorded[0] : fetchSha1(artifact.url());
+                if (expected.equalsIgnoreCase(sha1(jarPath))) {
+                    writeVerified(jarPath, sha1Path, expected);
+                    LOGGER.info("{} JAR verified: {}", artifact.label(), jarPath);
+                    return jarPath;
+                }
+                LOGGER.warn("{} JAR is corrupt, downloading it again", artifact.label());
+                Files.delete(jarPath);
+            }
+        } catch (IOException e) {
+            if (Files.exists(jarPath)) {
+                // Offline and can't check it; a jar that was moved into place completed its download
+                LOGGER.warn("Could not verify {} JAR ({}), using it as is", artifact.label(), e.getMessage());
+                return jarPath;
+            }
         }
         
-        String downloadUrl = String.format("%s/%s/%s/ffmpeg-%s.jar",
-            MAVEN_REPO, GROUP_PATH, FFMPEG_VERSION, FFMPEG_VERSION);
+        LOGGER.info("Downloading {} from: {}", artifact.label(), artifact.url());
+        for (int attempt = 1; attempt <= DOWNLOAD_ATTEMPTS; attempt++) {
+            try {
+                String expected = fetchSha1(artifact.url());
+                Path partPath = libDir.resolve(artifact.fileName() + ".part");
+                downloadFile(artifact.url(), partPath, tracker);
+                
+                String actual = sha1(partPath);
+                if (!expected.equalsIgnoreCase(actual)) {
+                    Files.deleteIfExists(partPath); // start over; resuming would keep the bad bytes
+                    throw new IOException("Checksum mismatch: expected " + expected + ", got " + actual);
+                }
+                moveIntoPlace(partPath, jarPath);
+                writeVerified(jarPath, sha1Path, expected);
+                LOGGER.info("Download complete: {}", jarPath);
+                return jarPath;
+            } catch (IOException e) {
+                LOGGER.warn("Download of {} failed (attempt {} of {}): {}", artifact.label(), attempt,
+                    DOWNLOAD_ATTEMPTS, e.getMessage());
+            }
+        }
+        LOGGER.error("Failed to download {} JAR", artifact.label());
+        return null;
+    }
+    
+    /**
+     * Download {@code url} into {@code partPath}, continuing from what is already there with an
+     * HTTP Range request if the server allows it.
+     */
+    void downloadFile(String url, Path partPath, DownloadProgress tracker) throws IOException {
+        long existing = Files.exists(partPath) ? Files.size(partPath) : 0L;
         
-        LOGGER.info("Downloading FFmpeg JAR from: {}", downloadUrl);
+        HttpURLConnection conn = openConnection(url);
+        if (existing > 0) {
+            conn.setRequestProperty("Range", "bytes=" + existing + "-");
+        }
         
         try {
-            downloadFile(downloadUrl, jarPath);
-            return jarPath;
-        } catch (IOException e) {
-            LOGGER.error("Failed to download FFmpeg JAR", e);
-            return null;
+            int responseCode = conn.getResponseCode();
+            boolean append;
+            if (responseCode == HttpURLConnection.HTTP_PARTIAL) {
+                append = true;
+                LOGGER.info("Resuming {} from {} KB", partPath.getFileName(), existing >> 10);
+            } else if (responseCode == 416 && existing > 0) {
+                // Range starts at or past the end: the previous attempt got everything, unless the
+                // file on the server has a different size than the one it was resumed from
+                long size = rangeTotal(conn.getHeaderField("Content-Range"));
+                if (size < 0) {
+                    size = fetchLength(url);
+                }
+                if (existing == size) {
+                    return;
+                }
+                LOGGER.info("{} has {} bytes but the server has {}, downloading it again", partPath.getFileName(),
+                    existing, size);
+                conn.disconnect();
+                Files.delete(partPath);
+                downloadFile(url, partPath, tracker);
+                return;
+            } else if (responseCode == HttpURLConnection.HTTP_OK) {
+                append = false;
+                existing = 0L;
+            } else {
+                throw new IOException("Failed to download: HTTP " + responseCode);
+            }
+            
+            long remaining = conn.getContentLengthLong();
+            tracker.addTotal(existing, remaining > 0 ? existing + remaining : 0L);
+            
+            OpenOption[] options = append
+                ? new OpenOption[]{StandardOpenOption.CREATE, StandardOpenOption.APPEND}
+                : new OpenOption[]{StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE};
+            try (InputStream in = conn.getInputStream();
+                 OutputStream out = Files.newOutputStream(partPath, options)) {
+                byte[] buffer = new byte[DOWNLOAD_BUFFER_SIZE];
+                long received = 0L;
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    out.write(buffer, 0, read);
+                    received += read;
+                    tracker.add(read);
+                }
+                if (remaining > 0 && received < remaining) {
+                    // Keep the part: the next attempt resumes from here instead of failing the checksum
+                    throw new IOException("Connection closed after " + received + " of " + remaining + " bytes");
+                }
+            }
+        } finally {
+            conn.disconnect();
         }
     }
     
-    private Path getOrDownloadFfmpegPlatformJar() {
-        String jarName = String.format("ffmpeg-%s-%s.jar", FFMPEG_VERSION, platform);
-        Path jarPath = libDir.resolve(jarName);
-        
-        if (Files.exists(jarPath)) {
-            LOGGER.info("FFmpeg platform JAR already exists: {}", jarPath);
-            return jarPath;
+    /**
+     * @return The full length from a {@code bytes start-end/length} or {@code bytes *}{@code /length}
+     *         Content-Range, or -1 if missing or unknown
+     */
+    static long rangeTotal(String contentRange) {
+        if (contentRange == null) {
+            return -1L;
         }
-        
-        String downloadUrl = String.format("%s/%s/%s/ffmpeg-%s-%s.jar",
-            MAVEN_REPO, GROUP_PATH, FFMPEG_VERSION, FFMPEG_VERSION, platform);
-        
-        LOGGER.info("Downloading FFmpeg platform JAR from: {}", downloadUrl);
-        
+        int slash = contentRange.lastIndexOf('/');
         try {
-            downloadFile(downloadUrl, jarPath);
-            return jarPath;
-        } catch (IOException e) {
-            LOGGER.error("Failed to download FFmpeg platform JAR", e);
-            return null;
+            return slash >= 0 ? Long.parseLong(contentRange.substring(slash + 1).trim()) : -1L;
+        } catch (NumberFormatException e) {
+            return -1L; // "*": the server doesn't know either
+        }
+    }
+    
+    /**
+     * @return The size of {@code url} from a HEAD request, or -1 if the server doesn't say
+     */
+    private static long fetchLength(String url) throws IOException {
+        HttpURLConnection conn = openConnection(url);
+        try {
+            conn.setRequestMethod("HEAD");
+            return conn.getResponseCode() == HttpURLConnection.HTTP_OK ? conn.getContentLengthLong() : -1L;
+        } finally {
+            conn.disconnect();
+        }
+    }
+    
+    /**
+     * @return The hex SHA-1 Maven publishes next to {@code url}
+     */
+    private String fetchSha1(String url) throws IOException {
+        HttpURLConnection conn = openConnection(url + ".sha1");
+        try {
+            int responseCode = conn.getResponseCode();
+            if (responseCode != HttpURLConnection.HTTP_OK) {
+                throw new IOException("Failed to fetch checksum: HTTP " + responseCode);
+            }
+            try (InputStream in = conn.getInputStream()) {
+                // Some .sha1 files carry the file name after the hash
+                String content = new String(in.readAllBytes(), StandardCharsets.US_ASCII).trim();
+                String hash = content.split("\\s+")[0];
+                if (hash.length() != 40) {
+                    throw new IOException("Invalid checksum file: " + content);
+                }
+                return hash;
+            }
+        } finally {
+            conn.disconnect();
+        }
+    }
+    
+    private static String sha1(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            byte[] buffer = new byte[DOWNLOAD_BUFFER_SIZE];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+    }
+    
+    /**
+     * Record that {@code jarPath} matched {@code hash}, with its size and modification time so
+     * later starts can trust it without hashing it again.
+     */
+    private static void writeVerified(Path jarPath, Path sha1Path, String hash) throws IOException {
+        Files.writeString(sha1Path, hash + " " + Files.size(jarPath) + " "
+            + Files.getLastModifiedTime(jarPath).toMillis());
+    }
+    
+    /**
+     * @return The checksum recorded for {@code jarPath}, or its size and modification time if none is
+     */
+    private String jarIdentity(Path jarPath) throws IOException {
+        Path sha1Path = libDir.resolve(jarPath.getFileName() + ".sha1");
+        if (Files.exists(sha1Path)) {
+            return Files.readString(sha1Path).trim().split("\\s+")[0];
         }
+        return Files.size(jarPath) + ":" + Files.getLastModifiedTime(jarPath).toMillis();
     }
     
-    private void downloadFile(String url, Path destination) throws IOException {
+    private static HttpURLConnection openConnection(String url) throws IOException {
         HttpURLConnection conn = (HttpURLConnection) URI.create(url).toURL().openConnection();
         conn.setRequestProperty("User-Agent", "Minecraft-Fabric-Mod");
         conn.setConnectTimeout(10000);
         conn.setReadTimeout(30000);
-        
-        int responseCode = conn.getResponseCode();
-        if (responseCode != 200) {
-            throw new IOException("Failed to download: HTTP " + responseCode);
+        return conn;
+    }
+    
+    private static void moveIntoPlace(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
         }
-        
-        long fileSize = conn.getContentLengthLong();
-        LOGGER.info("Downloading {} bytes...", fileSize);
-        
-        try (InputStream in = conn.getInputStream();
-             OutputStream out = Files.newOutputStream(destination)) {
-            
-            byte[] buffer = new byte[8192];
-            long downloaded = 0;
-            int read;
-            
-            while ((read = in.read(buffer)) != -1) {
-                out.write(buffer, 0, read);
-                downloaded += read;
-                
-                if (fileSize > 0 && downloaded % (1024 * 1024) == 0) {
-                    LOGGER.info("Downloaded: {} MB / {} MB", 
-                        downloaded / (1024 * 1024), fileSize / (1024 * 1024));
+    }
+    
+    /**
+     * Load the native libraries before the first grabber is created, and report what that cost.
+     * Players who never see a video never pay it. JavaCPP only loads the libraries of the presets
+     * that are used, but JavaCV's grabber uses avdevice, which pulls in avfilter and postproc, so
+     * every FFmpeg library in the jar is loaded at this point. Does nothing after the first call.
+     */
+    public static synchronized void loadLibraries() {
+        if (librariesLoaded) {
+            return;
+        }
+        librariesLoaded = true;
+        long residentBefore = residentKb();
+        long startNanos = System.nanoTime();
+        try {
+            // Reflective: the grabber is only on the classpath since addToClasspath
+            Class.forName("org.bytedeco.javacv.FFmpegFrameGrabber", true, FFmpegNativeLoader.class.getClassLoader())
+                .getMethod("tryLoad").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            LOGGER.warn("Could not load FFmpeg libraries up front, the grabber will load them", e);
+            return;
+        }
+        long elapsedMs = (System.nanoTime() - startNanos) / 1_000_000L;
+        long residentAfter = residentKb();
+        if (residentBefore >= 0 && residentAfter >= 0) {
+            LOGGER.info("FFmpeg libraries loaded in {} ms, resident memory {} MB -> {} MB", elapsedMs,
+                residentBefore / 1024L, residentAfter / 1024L);
+        } else {
+            LOGGER.info("FFmpeg libraries loaded in {} ms", elapsedMs);
+        }
+    }
+    
+    /**
+     * @return The process's resident set size in kB, or -1 where /proc isn't available
+     */
+    private static long residentKb() {
+        try {
+            for (String line : Files.readAllLines(Path.of("/proc/self/status"))) {
+                if (line.startsWith("VmRSS:")) {
+                    return Long.parseLong(line.substring(6).replace("kB", "").trim());
                 }
             }
+        } catch (IOException | NumberFormatException e) {
+            // Not Linux, or an unexpected format
         }
-        
-        LOGGER.info("Download complete: {}", destination);
+        return -1L;
     }
     
     private boolean extractAndConfigureNatives(Path jarPath) {
@@ -297,8 +516,6 @@ public class FFmpegNativeLoader {
             Path nativesDir = libDir.resolve("natives").resolve(platform);
             Files.createDirectories(nativesDir);
             
-            LOGGER.info("Configuring JavaCPP to use natives from: {}", nativesDir);
-            
             // CRITICAL: Set these BEFORE any FFmpeg classes load
             // JavaCPP will look for natives in cachedir/platform/
             System.setProperty("org.bytedeco.javacpp.cachedir", nativesDir.getParent().toString());
@@ -310,46 +527,18 @@ public class FFmpegNativeLoader {
             // Tell JavaCPP to look in our custom location first
             System.setProperty("org.bytedeco.javacpp.pathsFirst", nativesDir.toAbsolutePath().toString());
             
-            LOGGER.info("Extracting natives to: {}", nativesDir);
-            
-            // Extract natives from the JAR
-            try (FileSystem jarFs = FileSystems.newFileSystem(jarPath, (ClassLoader) null)) {
-                boolean foundNatives = false;
-                
-                for (Path rootDir : jarFs.getRootDirectories()) {
-                    Files.walk(rootDir)
-                        .filter(p -> {
-                            String name = p.toString().toLowerCase();
-                            return name.endsWith(".dll") || 
-                                   name.endsWith(".so") || 
-                                   name.endsWith(".dylib") ||
-                                   name.endsWith(".jnilib");
-                        })
-                        .forEach(nativePath -> {
-                            try {
-                                String fileName = nativePath.getFileName().toString();
-                                Path targetPath = nativesDir.resolve(fileName);
-                                
-                                if (!Files.exists(targetPath)) {
-                                    Files.copy(nativePath, targetPath, StandardCopyOption.REPLACE_EXISTING);
-                                    LOGGER.info("Extracted native: {}", fileName);
-                                }
-                            } catch (IOException e) {
-                                LOGGER.error("Failed to extract native: {}", nativePath, e);
-                            }
-                        });
-                    
-                    try (var stream = Files.list(nativesDir)) {
-                        if (stream.findAny().isPresent()) {
-                            foundNatives = true;
-                        }
-                    }
-                }
-                
-                if (!foundNatives) {
+            String identity = jarIdentity(jarPath);
+            Path stampPath = nativesDir.resolve(STAMP_FILE);
+            if (isExtracted(stampPath, nativesDir, identity)) {
+                LOGGER.info("Natives already extracted in {} (stamp matches), skipping jar scan", nativesDir);
+            } else {
+                List<String> entries = extractNatives(jarPath, nativesDir);
+                if (entries.isEmpty()) {
                     LOGGER.error("No native libraries found in JAR!");
                     return false;
                 }
+                writeStamp(stampPath, nativesDir, identity, entries);
+                LOGGER.info("Extracted {} natives to {}", entries.size(), nativesDir);
             }
             
             // Update java.library.path for good measure
@@ -368,22 +557,12 @@ public class FFmpegNativeLoader {
                 sysPathsField.setAccessible(true);
                 sysPathsField.set(null, null);
             } catch (Exception e) {
-                LOGGER.warn("Could not reset sys_paths", e);
-            }
-            
-            LOGGER.info("=== Native Configuration Complete ===");
-            LOGGER.info("Natives directory: {}", nativePath);
-            LOGGER.info("java.library.path: {}", System.getProperty("java.library.path"));
-            LOGGER.info("javacpp.cachedir: {}", System.getProperty("org.bytedeco.javacpp.cachedir"));
-            LOGGER.info("javacpp.platform: {}", System.getProperty("org.bytedeco.javacpp.platform"));
-            LOGGER.info("javacpp.pathsFirst: {}", System.getProperty("org.bytedeco.javacpp.pathsFirst"));
-            
-            // List all DLL files found
-            LOGGER.info("Native files extracted:");
-            try (var stream = Files.list(nativesDir)) {
-                stream.forEach(p -> LOGGER.info("  - {}", p.getFileName()));
+                LOGGER.debug("Could not reset sys_paths", e);
             }
             
+            LOGGER.debug("Native configuration: java.library.path={}, javacpp.cachedir={}, javacpp.platform={}, javacpp.pathsFirst={}",
+                System.getProperty("java.library.path"), System.getProperty("org.bytedeco.javacpp.cachedir"),
+                System.getProperty("org.bytedeco.javacpp.platform"), System.getProperty("org.bytedeco.javacpp.pathsFirst"));
             return true;
             
         } catch (Exception e) {
@@ -392,6 +571,76 @@ public class FFmpegNativeLoader {
         }
     }
     
+    /**
+     * Copy every native library in {@code jarPath} into {@code nativesDir}. That is also the
+     * minimal set: the grabber links avdevice, which needs all the others (see {@link #loadLibraries()}).
+     * @return The names of the natives in the jar
+     */
+    private List<String> extractNatives(Path jarPath, Path nativesDir) throws IOException {
+        List<String> entries = new ArrayList<>();
+        try (FileSystem jarFs = FileSystems.newFileSystem(jarPath, (ClassLoader) null)) {
+            for (Path rootDir : jarFs.getRootDirectories()) {
+                try (var stream = Files.walk(rootDir)) {
+                    for (Path nativePath : (Iterable<Path>) stream::iterator) {
+                        String name = nativePath.toString().toLowerCase();
+                        if (!name.endsWith(".dll") && !name.endsWith(".so") && !name.endsWith(".dylib")
+                                && !name.endsWith(".jnilib")) {
+                            continue;
+                        }
+                        String fileName = nativePath.getFileName().toString();
+                        Path targetPath = nativesDir.resolve(fileName);
+                        // A file left by an interrupted extraction may be partial; a complete one
+                        // may be loaded by another running instance (locked on Windows), so keep it
+                        if (!Files.exists(targetPath) || Files.size(targetPath) != Files.size(nativePath)) {
+                            Files.copy(nativePath, targetPath, StandardCopyOption.REPLACE_EXISTING);
+                            LOGGER.debug("Extracted native: {}", fileName);
+                        }
+                        entries.add(fileName);
+                    }
+                }
+            }
+        }
+        return entries;
+    }
+    
+    /**
+     * Stamp format: the jar's checksum on the first line, then one "name size" line per native.
+     * Written last, so an interrupted extraction never leaves a valid stamp behind.
+     */
+    private static void writeStamp(Path stampPath, Path nativesDir, String identity, List<String> entries) throws IOException {
+        StringBuilder stamp = new StringBuilder(identity).append('\n');
+        for (String entry : entries) {
+            stamp.append(entry).append('\t').append(Files.size(nativesDir.resolve(entry))).append('\n');
+        }
+        Path tempPath = stampPath.resolveSibling(STAMP_FILE + ".tmp");
+        Files.writeString(tempPath, stamp);
+        moveIntoPlace(tempPath, stampPath);
+    }
+    
+    /**
+     * @return True if the stamp was written for this jar and every native it lists is still there
+     *         at the recorded size. Checks only the listed files, never opens the jar.
+     */
+    private static boolean isExtracted(Path stampPath, Path nativesDir, String identity) {
+        try {
+            if (!Files.exists(stampPath)) return false;
+            List<String> lines = Files.readAllLines(stampPath);
+            if (lines.size() < 2 || !lines.get(0).equals(identity)) return false;
+            for (String line : lines.subList(1, lines.size())) {
+                int tab = line.lastIndexOf('\t');
+                if (tab <= 0) return false;
+                Path file = nativesDir.resolve(line.substring(0, tab));
+                if (!Files.exists(file) || Files.size(file) != Long.parseLong(line.substring(tab + 1))) {
+                    return false;
+                }
+            }
+            return true;
+        } catch (IOException | NumberFormatException e) {
+            LOGGER.warn("Unreadable natives stamp {}, extracting again", stampPath, e);
+            return false;
+        }
+    }
+    
     private void addToClasspath(Path jarPath) throws Exception {
         // Get Fabric's KnotClassLoader
         ClassLoader loader = Thread.currentThread().getContextClassLoader();
@@ -462,4 +711,50 @@ public class FFmpegNativeLoader {
      * Progress information for async loading
      */
     public record LoadProgress(String message, int percentage) {}
+    
+    /**
+     * Combined progress of the parallel downloads, reported whenever the percentage changes.
+     */
+    static final class DownloadProgress {
+        private final Consumer<LoadProgress> callback;
+        private final int maxPercent;
+        private final AtomicLong done = new AtomicLong();
+        private final AtomicLong total = new AtomicLong();
+        private final AtomicLong downloaded = new AtomicLong();
+        private int lastPercent = -1;
+        
+        DownloadProgress(Consumer<LoadProgress> callback, int maxPercent) {
+            this.callback = callback;
+            this.maxPercent = maxPercent;
+        }
+        
+        /**
+         * A download started with {@code alreadyDone} bytes resumed from an earlier attempt.
+         * @param size Full size of the file, 0 if the server didn't say
+         */
+        void addTotal(long alreadyDone, long size) {
+            done.addAndGet(alreadyDone);
+            total.addAndGet(Math.max(size, alreadyDone));
+        }
+        
+        void add(int bytes) {
+            done.addAndGet(bytes);
+            downloaded.addAndGet(bytes);
+            report();
+        }
+        
+        long downloadedBytes() {
+            return downloaded.get();
+        }
+        
+        private synchronized void report() {
+            long all = total.get();
+            if (all <= 0) return;
+            int percent = (int) Math.min(done.get() * maxPercent / all, maxPercent);
+            if (percent == lastPercent) return;
+            lastPercent = percent;
+            callback.accept(new LoadProgress(String.format("Downloading FFmpeg (%d / %d MB)...",
+                done.get() >> 20, all >> 20), percent));
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,56 @@
+package net.entsvideoplayer.client;
+
+import org.bytedeco.ffmpeg.avutil.AVFrame;
+import org.bytedeco.ffmpeg.swscale.SwsContext;
+import org.bytedeco.javacpp.BytePointer;
+import org.bytedeco.javacpp.DoublePointer;
+import org.bytedeco.javacpp.IntPointer;
+import org.bytedeco.javacpp.PointerPointer;
+
+import static org.bytedeco.ffmpeg.global.avutil.AV_PIX_FMT_RGBA;
+import static org.bytedeco.ffmpeg.global.swscale.*;
+
+/**
+ * Pixel conversion stage: sws_scale from the decoder's native format into an RGBA {@link RawFrame},
+ * which is byte for byte the layout NativeImage keeps in native memory.
+ * Not thread-safe - owned by the convert thread.
+ */
+class FrameConverter implements AutoCloseable {
+    private SwsContext swsContext;
+
+    // Reused for every frame so the conversion itself allocates nothing
+    private final PointerPointer<BytePointer> dstData = new PointerPointer<>(4);
+    private final IntPointer dstStride = new IntPointer(4);
+
+    /**
+     * Convert {@code src} into {@code dst}, scaling to {@code dst.width} x {@code dst.height}.
+     */
+    void convert(AVFrame src, RawFrame dst) {
+        swsContext = sws_getCachedContext(swsContext,
+                src.width(), src.height(), src.format(),
+                dst.width, dst.height, AV_PIX_FMT_RGBA,
+                SWS_BILINEAR, null, null, (DoublePointer) null);
+        if (swsContext == null) {
+            throw new IllegalStateException("Could not create swscale context for pixel format " + src.format());
+        }
+
+        if (dst.pointer == null) {
+            dst.pointer = new BytePointer(dst.buffer);
+        }
+        dstData.put(0, dst.pointer);
+        dstStride.put(0, dst.stride);
+
+        sws_scale(swsContext, src.data(), src.linesize(), 0, src.height(), dstData, dstStride);
+        dst.buffer.position(0).limit(dst.stride * dst.height);
+    }
+
+    @Override
+    public void close() {
+        if (swsContext != null) {
+            sws_freeContext(swsContext);
+            swsContext = null;
+        }
+        dstData.close();
+        dstStride.close();
+    }
+}
@@ -0,0 +1,79 @@
+package net.entsvideoplayer.client;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fixed-capacity ring of direct frame buffers shared by the convert stage and the render thread.
+ * The convert stage acquires a frame, fills it and hands it to the renderer, which releases it
+ * back once a newer frame replaces it. After warm-up, playback allocates no direct memory.
+ */
+public class FramePool {
+    private final ArrayBlockingQueue<RawFrame> free;
+    private final int capacity;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * @param capacity Maximum number of frames that can be in flight at once
+     * @param frameBytes Expected size of one frame (stride * height), used to preallocate the ring
+     */
+    public FramePool(int capacity, int frameBytes) {
+        this.capacity = capacity;
+        this.free = new ArrayBlockingQueue<>(capacity);
+
+        for (int i = 0; i < capacity; i++) {
+            RawFrame frame = new RawFrame();
+            frame.buffer = ByteBuffer.allocateDirect(frameBytes);
+            free.add(frame);
+        }
+    }
+
+    /**
+     * Take a frame from the pool, sized for at least {@code stride * height} bytes.
+     * Blocks if every frame is currently in flight.
+     */
+    RawFrame acquire(int width, int height, int stride) throws InterruptedException {
+        RawFrame frame = free.take(); // blocks only when every frame is in flight
+
+        int bytes = stride * height;
+        if (frame.buffer.capacity() < bytes) {
+            // Stream is larger than the preallocated size - this is the only place we allocate
+            frame.buffer = ByteBuffer.allocateDirect(bytes);
+            frame.pointer = null;
+            misses.incrementAndGet();
+        } else {
+            hits.incrementAndGet();
+        }
+
+        frame.buffer.clear();
+        frame.buffer.limit(bytes);
+        frame.width = width;
+        frame.height = height;
+        frame.stride = stride;
+        return frame;
+    }
+
+    /**
+     * Return a frame to the pool. Safe to call from any thread; null is ignored.
+     */
+    void release(RawFrame frame) {
+        if (frame != null) {
+            free.offer(frame);
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+}
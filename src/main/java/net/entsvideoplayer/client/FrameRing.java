@@ -0,0 +1,171 @@
+package net.entsvideoplayer.client;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Lock-free single-producer/single-consumer ring of frame slots between the convert stage and
+ * the render thread. Slots are addressed by sequence number, so handing over a frame is one slot
+ * write plus one ordered counter update; nothing is allocated and no lock is taken.
+ * <p>
+ * In latest-frame-wins mode a full ring never blocks the producer: the oldest queued frame is
+ * evicted (and handed to the eviction callback) to make room for the new one.
+ */
+class FrameRing {
+    private static final int SPINS_BEFORE_PARK = 64;
+    private static final long PARK_NANOS = 200_000L;
+
+    private final RawFrame[] slots;
+    private final int mask;
+    private final boolean latestFrameWins;
+    private final Consumer<RawFrame> onEvict;
+
+    // head is advanced by the consumer (and by the producer when evicting), tail only by the producer
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+
+    // Stats
+    private final AtomicLong handoffs = new AtomicLong();
+    private final AtomicLong handoffNanosTotal = new AtomicLong();
+    private volatile long handoffNanosMax = 0L;
+    private final AtomicLong producerWaits = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * @param minCapacity Minimum number of slots, rounded up to a power of two
+     * @param latestFrameWins Evict the oldest frame instead of waiting when full
+     * @param onEvict Receives frames evicted in latest-frame-wins mode (typically back to the pool)
+     */
+    FrameRing(int minCapacity, boolean latestFrameWins, Consumer<RawFrame> onEvict) {
+        int capacity = Integer.highestOneBit(Math.max(minCapacity, 2) - 1) << 1;
+        this.slots = new RawFrame[capacity];
+        this.mask = capacity - 1;
+        this.latestFrameWins = latestFrameWins;
+        this.onEvict = onEvict;
+    }
+
+    /**
+     * Producer: publish a frame, waiting (spin, then park) while the ring is full.
+     * In latest-frame-wins mode this never waits.
+     *
+     * @return false if interrupted while waiting; the frame was not queued
+     */
+    boolean put(RawFrame frame) {
+        frame.enqueuedNanos = System.nanoTime();
+        int spins = 0;
+        boolean waited = false;
+
+        while (true) {
+            long t = tail.get();
+            long h = head.get();
+
+            if (t - h < slots.length) {
+                slots[(int) (t & mask)] = frame;
+                tail.lazySet(t + 1); // release: slot write is visible before the new tail
+                return true;
+            }
+
+            if (latestFrameWins) {
+                RawFrame oldest = slots[(int) (h & mask)];
+                if (head.compareAndSet(h, h + 1)) {
+                    evictions.incrementAndGet();
+                    onEvict.accept(oldest);
+                }
+                continue;
+            }
+
+            if (!waited) {
+                waited = true;
+                producerWaits.incrementAndGet();
+            }
+            if (Thread.currentThread().isInterrupted()) return false;
+            if (spins++ < SPINS_BEFORE_PARK) {
+                Thread.onSpinWait();
+            } else {
+                LockSupport.parkNanos(PARK_NANOS);
+            }
+        }
+    }
+
+    /**
+     * Consumer: take the oldest frame, or null if the ring is empty.
+     */
+    RawFrame poll() {
+        while (true) {
+            long h = head.get();
+            if (h == tail.get()) return null;
+
+            RawFrame frame = slots[(int) (h & mask)];
+            if (head.compareAndSet(h, h + 1)) {
+                recordHandoff(frame);
+                return frame;
+            }
+            // Lost a race with an eviction - retry with the new head
+        }
+    }
+
+    /**
+     * Consumer: look at the oldest frame without taking it. In latest-frame-wins mode it may be
+     * evicted before the next {@link #poll()}, which then returns a newer frame.
+     */
+    RawFrame peek() {
+        long h = head.get();
+        if (h == tail.get()) return null;
+        return slots[(int) (h & mask)];
+    }
+
+    boolean isEmpty() {
+        return head.get() == tail.get();
+    }
+
+    boolean isFull() {
+        return tail.get() - head.get() >= slots.length;
+    }
+
+    int size() {
+        return (int) (tail.get() - head.get());
+    }
+
+    /**
+     * Drop everything queued, handing each frame to {@code sink}. Only call once the producer has stopped.
+     */
+    void clear(Consumer<RawFrame> sink) {
+        RawFrame frame;
+        while ((frame = poll()) != null) {
+            sink.accept(frame);
+        }
+    }
+
+    private void recordHandoff(RawFrame frame) {
+        long latency = System.nanoTime() - frame.enqueuedNanos;
+        handoffs.incrementAndGet();
+        handoffNanosTotal.addAndGet(latency);
+        if (latency > handoffNanosMax) {
+            handoffNanosMax = latency; // consumer-only write
+        }
+    }
+
+    /**
+     * @return Mean time a frame spent queued between put() and poll(), in microseconds
+     */
+    long getAverageHandoffLatencyUs() {
+        long n = handoffs.get();
+        return n == 0 ? 0L : handoffNanosTotal.get() / n / 1000L;
+    }
+
+    long getMaxHandoffLatencyUs() {
+        return handoffNanosMax / 1000L;
+    }
+
+    /**
+     * @return How many put() calls found the ring full and had to wait for the consumer
+     */
+    long getProducerWaits() {
+        return producerWaits.get();
+    }
+
+    long getEvictions() {
+        return evictions.get();
+    }
+}
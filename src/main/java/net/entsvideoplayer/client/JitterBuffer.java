@@ -0,0 +1,219 @@
+package net.entsvideoplayer.client;
+
+import net.entsvideoplayer.EntsVideoPlayer;
+
+import org.bytedeco.javacv.FFmpegFrameGrabber;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Holds playback of a network source until enough of it is buffered, and pauses it to rebuffer
+ * when the network falls behind, instead of letting the renderer starve frame by frame.
+ * <p>
+ * The buffer is measured in media time: what the decoder has queued ahead of the clock, plus the
+ * bytes downloaded but not yet read by the decoder, at the stream's bitrate. Playback starts once
+ * the buffer reaches the profile's target, pauses when it falls to the low mark and resumes at the
+ * target again, so a single late packet doesn't toggle it back and forth.
+ */
+final class JitterBuffer {
+    /**
+     * Downloaded bytes the decoder hasn't read yet.
+     */
+    interface Input {
+        long bytesAhead();
+
+        /**
+         * @return Size of the whole stream in bytes, 0 if unknown
+         */
+        long totalBytes();
+
+        /**
+         * @return True once everything has been downloaded; a complete input never rebuffers
+         */
+        boolean isComplete();
+    }
+
+    enum Profile {
+        // Live (rtmp): start fast and stay close to the live edge
+        LOW_LATENCY,
+        // Video on demand (http/https): buffer more, rebuffer rarely
+        SMOOTH
+    }
+
+    // Bitrate assumed until the stream reports one, for turning bytes into time
+    private static final long FALLBACK_BITRATE = 4_000_000L;
+
+    private final Profile profile;
+    private final long targetUs;
+    private final long lowUs;
+    private final Input input;
+    private final LongSupplier nanoTime;
+    private volatile long bitrate = FALLBACK_BITRATE;
+
+    private volatile boolean playing = false;
+    private final long createdNanos;
+    private long startupNanos = -1L;
+    private long rebufferStartNanos;
+    private long rebufferNanos = 0L;
+    // Refilling after a seek rather than after an underrun
+    private boolean seeking = false;
+    private int underruns = 0;
+    private long fillSamples = 0L;
+    private long fillSumUs = 0L;
+    private long minFillUs = Long.MAX_VALUE;
+
+    /**
+     * @param targetUs Buffer to reach before starting or resuming. Without an input the decoder
+     *                 has to hold all of it, so its queues must be sized for it (see
+     *                 {@link #getTargetUs()})
+     * @param input Download feeding the decoder, or null if FFmpeg reads the network itself
+     */
+    JitterBuffer(Profile profile, long targetUs, Input input) {
+        this(profile, targetUs, input, System::nanoTime);
+    }
+
+    /**
+     * @param nanoTime Clock for startup and rebuffering times
+     */
+    JitterBuffer(Profile profile, long targetUs, Input input, LongSupplier nanoTime) {
+        this.profile = profile;
+        this.input = input;
+        this.nanoTime = nanoTime;
+        this.targetUs = targetUs;
+        this.lowUs = profile == Profile.LOW_LATENCY ? targetUs / 6 : targetUs / 8;
+        this.createdNanos = nanoTime.getAsLong();
+    }
+
+    /**
+     * @param grabber The started grabber reading {@code source}
+     * @return A buffer with the profile for {@code source}, or null if it isn't read from the
+     *         network (including cached https videos) or buffering is disabled for it
+     */
+    static JitterBuffer forSource(String source, FFmpegFrameGrabber grabber) {
+        CutsceneConfig config = CutsceneConfig.get();
+        if (source.startsWith("rtmp://")) {
+            if (config.jitterLiveMs <= 0) return null;
+            return new JitterBuffer(Profile.LOW_LATENCY, config.jitterLiveMs * 1000L, null);
+        }
+        if (!VideoCache.isBufferable(source)) return null;
+        if (config.jitterVodMs <= 0) return null;
+
+        Input input = VideoCache.get().downloadInput(grabber);
+        if (input == null && VideoCache.isCacheable(source) && VideoCache.get().cachedFile(source) != null) {
+            return null; // read from disk
+        }
+        JitterBuffer buffer = new JitterBuffer(Profile.SMOOTH, config.jitterVodMs * 1000L, input);
+        buffer.setBitrate((long) grabber.getVideoBitrate() + grabber.getAudioBitrate(), grabber.getLengthInTime());
+        return buffer;
+    }
+
+    /**
+     * @param bitsPerSecond The stream's bitrate, 0 if unknown
+     * @param lengthUs The stream's duration, to derive the bitrate from the download size when unknown
+     */
+    void setBitrate(long bitsPerSecond, long lengthUs) {
+        if (bitsPerSecond <= 0 && input != null && input.totalBytes() > 0 && lengthUs > 0) {
+            bitsPerSecond = input.totalBytes() * 8L * 1_000_000L / lengthUs;
+        }
+        if (bitsPerSecond > 0) bitrate = bitsPerSecond;
+    }
+
+    boolean isPlaying() {
+        return playing;
+    }
+
+    long getTargetUs() {
+        return targetUs;
+    }
+
+    int getUnderruns() {
+        return underruns;
+    }
+
+    /**
+     * @return Time from creation until playback first started, -1 if it hasn't yet
+     */
+    long getStartupNanos() {
+        return startupNanos;
+    }
+
+    /**
+     * @return Time spent rebuffering after underruns (not seeks)
+     */
+    long getRebufferNanos() {
+        return rebufferNanos;
+    }
+
+    /**
+     * @return True if downloaded bytes count towards the buffer; otherwise only what the decoder
+     *         has queued does
+     */
+    boolean hasInput() {
+        return input != null;
+    }
+
+    /**
+     * Buffer thread: take a measurement and decide whether playback should run.
+     * @param decodedAheadUs Media time decoded but not yet presented
+     * @param decoderFinished The decoder has read everything, so nothing more can arrive
+     * @return True if this measurement changed whether playback should run
+     */
+    boolean update(long decodedAheadUs, boolean decoderFinished) {
+        long aheadUs = Math.max(decodedAheadUs, 0L);
+        boolean complete = decoderFinished;
+        if (input != null) {
+            aheadUs += input.bytesAhead() * 8L * 1_000_000L / bitrate;
+            complete |= input.isComplete();
+        }
+
+        long now = nanoTime.getAsLong();
+        if (playing) {
+            fillSamples++;
+            fillSumUs += aheadUs;
+            minFillUs = Math.min(minFillUs, aheadUs);
+            if (aheadUs > lowUs || complete) return false;
+
+            playing = false;
+            underruns++;
+            rebufferStartNanos = now;
+            EntsVideoPlayer.LOGGER.info("Jitter buffer underrun #{}: {} ms buffered, rebuffering to {} ms",
+                    underruns, aheadUs / 1000L, targetUs / 1000L);
+            return true;
+        }
+
+        if (aheadUs < targetUs && !complete) return false;
+        playing = true;
+        if (startupNanos < 0) {
+            startupNanos = now - createdNanos;
+            EntsVideoPlayer.LOGGER.info("Jitter buffer ({}): started after {} ms with {} ms buffered",
+                    profile, startupNanos / 1_000_000L, aheadUs / 1000L);
+        } else if (seeking) {
+            EntsVideoPlayer.LOGGER.debug("Jitter buffer: refilled after seek in {} ms", (now - rebufferStartNanos) / 1_000_000L);
+        } else {
+            long pause = now - rebufferStartNanos;
+            rebufferNanos += pause;
+            EntsVideoPlayer.LOGGER.info("Jitter buffer: resumed after {} ms", pause / 1_000_000L);
+        }
+        seeking = false;
+        return true;
+    }
+
+    /**
+     * Buffer thread, or while none is running: after a seek the buffer refills before playback
+     * continues, without counting as an underrun.
+     */
+    void restart() {
+        if (playing) {
+            playing = false;
+            seeking = true;
+            rebufferStartNanos = nanoTime.getAsLong();
+        }
+    }
+
+    void logStats() {
+        EntsVideoPlayer.LOGGER.info("Jitter buffer ({}, target {} ms): startup {} ms, {} underruns, {} ms rebuffering, fill avg {} ms, min {} ms",
+                profile, targetUs / 1000L, startupNanos >= 0 ? startupNanos / 1_000_000L : -1L, underruns,
+                rebufferNanos / 1_000_000L, fillSamples > 0 ? fillSumUs / fillSamples / 1000L : 0L,
+                minFillUs != Long.MAX_VALUE ? minFillUs / 1000L : 0L);
+    }
+}
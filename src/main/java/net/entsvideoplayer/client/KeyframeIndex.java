@@ -0,0 +1,226 @@
+package net.entsvideoplayer.client;
+
+import net.entsvideoplayer.EntsVideoPlayer;
+
+import org.bytedeco.ffmpeg.avcodec.AVPacket;
+import org.bytedeco.ffmpeg.avformat.AVFormatContext;
+import org.bytedeco.ffmpeg.avformat.AVInputFormat;
+import org.bytedeco.ffmpeg.avutil.AVDictionary;
+import org.bytedeco.ffmpeg.avutil.AVRational;
+import org.bytedeco.javacpp.PointerPointer;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.bytedeco.ffmpeg.global.avcodec.AV_PKT_FLAG_KEY;
+import static org.bytedeco.ffmpeg.global.avcodec.av_packet_alloc;
+import static org.bytedeco.ffmpeg.global.avcodec.av_packet_free;
+import static org.bytedeco.ffmpeg.global.avcodec.av_packet_unref;
+import static org.bytedeco.ffmpeg.global.avformat.av_read_frame;
+import static org.bytedeco.ffmpeg.global.avformat.avformat_close_input;
+import static org.bytedeco.ffmpeg.global.avformat.avformat_find_stream_info;
+import static org.bytedeco.ffmpeg.global.avformat.avformat_open_input;
+import static org.bytedeco.ffmpeg.global.avutil.AVMEDIA_TYPE_VIDEO;
+import static org.bytedeco.ffmpeg.global.avutil.AV_NOPTS_VALUE;
+
+/**
+ * Video keyframe timestamps of a local or cached file, so a seek can start decoding exactly at
+ * the nearest keyframe before the target instead of relying on the container's own index
+ * (missing or coarse in MPEG-TS, MKV without cues, and similar).
+ * <p>
+ * Built once in the background by reading the packets without decoding them, and saved next to
+ * the video as {@code <name>.keyframes} along with the video's size and modification time, so an
+ * edited file is indexed again.
+ */
+final class KeyframeIndex {
+    private static final int MAGIC = 0x4B465849; // "KFXI"
+    private static final int VERSION = 1;
+
+    private static final Map<Path, KeyframeIndex> loaded = new ConcurrentHashMap<>();
+    private static final Set<Path> building = ConcurrentHashMap.newKeySet();
+
+    private final String stamp;
+    // Stream microseconds, as passed to FFmpegFrameGrabber.setTimestamp, ascending
+    private final long[] keyframesUs;
+
+    private KeyframeIndex(String stamp, long[] keyframesUs) {
+        this.stamp = stamp;
+        this.keyframesUs = keyframesUs;
+    }
+
+    /**
+     * @return The index for {@code source} if one is ready, otherwise null (and, for a local or
+     *         cached file, an index is built in the background for next time)
+     */
+    static KeyframeIndex forSource(String source) {
+        Path video = videoFile(source);
+        if (video == null) return null;
+
+        String stamp;
+        try {
+            stamp = Files.size(video) + ":" + Files.getLastModifiedTime(video).toMillis();
+        } catch (IOException e) {
+            return null;
+        }
+
+        KeyframeIndex index = loaded.get(video);
+        if (index != null && index.stamp.equals(stamp)) return index;
+
+        index = read(indexFile(video), stamp);
+        if (index != null) {
+            loaded.put(video, index);
+            return index;
+        }
+
+        if (building.add(video)) {
+            Thread thread = new Thread(() -> {
+                try {
+                    build(video, stamp);
+                } finally {
+                    building.remove(video);
+                }
+            }, "Cutscene-Index-Thread");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            thread.start();
+        }
+        return null;
+    }
+
+    /**
+     * @return The file FFmpeg reads for {@code source}, or null if it isn't a seekable local file
+     */
+    private static Path videoFile(String source) {
+        if (VideoCache.isCacheable(source)) {
+            return VideoCache.get().cachedFile(source);
+        }
+        if (source.contains("://")) return null; // pack streams and other network sources
+        Path file = Path.of(source);
+        return Files.isRegularFile(file) ? file : null;
+    }
+
+    static Path indexFile(Path video) {
+        return video.resolveSibling(video.getFileName() + ".keyframes");
+    }
+
+    /**
+     * @return The last keyframe at or before {@code timestampUs} (the first keyframe if none is)
+     */
+    long floorUs(long timestampUs) {
+        int i = Arrays.binarySearch(keyframesUs, timestampUs);
+        if (i < 0) i = -i - 2;
+        return keyframesUs[Math.max(i, 0)];
+    }
+
+    int size() {
+        return keyframesUs.length;
+    }
+
+    private static KeyframeIndex read(Path file, String stamp) {
+        if (!Files.exists(file)) return null;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION || !in.readUTF().equals(stamp)) {
+                return null; // other format, or the video changed since
+            }
+            long[] keyframes = new long[in.readInt()];
+            for (int i = 0; i < keyframes.length; i++) {
+                keyframes[i] = in.readLong();
+            }
+            return keyframes.length > 0 ? new KeyframeIndex(stamp, keyframes) : null;
+        } catch (IOException e) {
+            EntsVideoPlayer.LOGGER.debug("Ignoring unreadable keyframe index {}", file, e);
+            return null;
+        }
+    }
+
+    private static void build(Path video, String stamp) {
+        long start = System.nanoTime();
+        long[] keyframes;
+        try {
+            keyframes = scan(video);
+        } catch (IOException e) {
+            EntsVideoPlayer.LOGGER.warn("Failed to index keyframes of {}: {}", video, e.getMessage());
+            return;
+        }
+        if (keyframes.length == 0) return;
+
+        Path file = indexFile(video);
+        Path part = file.resolveSibling(file.getFileName() + ".part");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(part)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeUTF(stamp);
+                out.writeInt(keyframes.length);
+                for (long keyframe : keyframes) {
+                    out.writeLong(keyframe);
+                }
+            }
+            Files.move(part, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            EntsVideoPlayer.LOGGER.warn("Failed to save keyframe index {}", file, e);
+        }
+        loaded.put(video, new KeyframeIndex(stamp, keyframes));
+        EntsVideoPlayer.LOGGER.info("Indexed {} keyframes of {} in {} ms", keyframes.length, video.getFileName(),
+                (System.nanoTime() - start) / 1_000_000L);
+    }
+
+    /**
+     * Read every packet of the video stream (demux only, nothing is decoded) and collect the keyframes.
+     */
+    private static long[] scan(Path video) throws IOException {
+        AVFormatContext format = new AVFormatContext(null);
+        if (avformat_open_input(format, video.toString(), (AVInputFormat) null, (AVDictionary) null) < 0) {
+            throw new IOException("Cannot open");
+        }
+        AVPacket packet = av_packet_alloc();
+        try {
+            if (avformat_find_stream_info(format, (PointerPointer) null) < 0) {
+                throw new IOException("No stream info");
+            }
+            int videoStream = -1;
+            for (int i = 0; i < format.nb_streams(); i++) {
+                if (format.streams(i).codecpar().codec_type() == AVMEDIA_TYPE_VIDEO) {
+                    videoStream = i;
+                    break;
+                }
+            }
+            if (videoStream < 0) throw new IOException("No video stream");
+
+            AVRational timeBase = format.streams(videoStream).time_base();
+            double usPerTick = 1_000_000.0 * timeBase.num() / timeBase.den();
+            // setTimestamp() takes times relative to the container start and adds start_time itself
+            long startUs = format.start_time() != AV_NOPTS_VALUE ? format.start_time() : 0L;
+
+            long[] keyframes = new long[256];
+            int count = 0;
+            while (av_read_frame(format, packet) >= 0) {
+                if (packet.stream_index() == videoStream && (packet.flags() & AV_PKT_FLAG_KEY) != 0) {
+                    long pts = packet.pts() != AV_NOPTS_VALUE ? packet.pts() : packet.dts();
+                    if (pts != AV_NOPTS_VALUE) {
+                        if (count == keyframes.length) keyframes = Arrays.copyOf(keyframes, count * 2);
+                        keyframes[count++] = Math.max((long) (pts * usPerTick) - startUs, 0L);
+                    }
+                }
+                av_packet_unref(packet);
+            }
+
+            keyframes = Arrays.copyOf(keyframes, count);
+            Arrays.sort(keyframes);
+            return keyframes;
+        } finally {
+            av_packet_free(packet);
+            avformat_close_input(format);
+        }
+    }
+}
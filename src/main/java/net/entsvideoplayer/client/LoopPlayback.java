@@ -0,0 +1,458 @@
+package net.entsvideoplayer.client;
+
+import net.entsvideoplayer.EntsVideoPlayer;
+
+import org.lwjgl.system.MemoryUtil;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.DataLine;
+import javax.sound.sampled.SourceDataLine;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Plays a cutscene in a loop until it is closed.
+ * <p>
+ * The first pass runs on the wrapped backend while a {@link LoopStore} records every converted
+ * frame and the audio. If the whole clip fit the {@code loopBudgetMb} budget, the decoder is
+ * closed and every later loop is replayed from memory on a continuous clock, so loops are
+ * seamless and cost no decoding. Otherwise (or for baked cutscenes, which are already
+ * random access) the backend is rewound to the start for each loop.
+ */
+final class LoopPlayback implements CutscenePlayback {
+    // Frames the screen can hold at once: the one on screen, the one being taken, one spare
+    private static final int FRAMES_IN_FLIGHT = 3;
+    // Largest single write to the line, ~20ms, so the writer notices shutdown quickly
+    private static final int AUDIO_WRITE_FRAMES = VideoPipeline.AUDIO_SAMPLE_RATE / 50;
+
+    private CutscenePlayback inner; // null once replaying from memory
+    // Newest frame polled from the first pass; the screen holds it until a newer one is shown
+    private RawFrame innerFrame;
+    // That frame, given back to the first pass's pipeline when it was closed; the screen's later
+    // release of it is ignored
+    private RawFrame returnedFrame;
+    private LoopStore store;
+    private boolean failed = false;
+    private int loop = 0;
+
+    private final int videoWidth;
+    private final int videoHeight;
+    private final double frameRate;
+    private final int audioChannels;
+    private final int sampleRate;
+
+    // Replay state, render thread only (except the audio writer)
+    private List<LoopStore.StoredFrame> frames;
+    private long baseUs;
+    private long loopDurationUs;
+    private int nextIndex = 0;
+    private int replayLoop = 0;
+    private FramePool expandPool;
+    private final RawFrame[] views = new RawFrame[FRAMES_IN_FLIGHT];
+    private int nextView = 0;
+    private final RawFrame peeked = new RawFrame();
+    private final int[] palette = new int[LoopStore.PALETTE_SIZE];
+    private SourceDataLine audioLine;
+    private Thread audioThread;
+    private PresentationClock clock;
+    private volatile boolean running = true;
+    private long loopCpuNanos = 0L;
+
+    LoopPlayback(CutscenePlayback inner) {
+        this.inner = inner;
+        this.videoWidth = inner.getVideoWidth();
+        this.videoHeight = inner.getVideoHeight();
+        this.frameRate = inner.getFrameRate();
+        this.audioChannels = inner.getAudioChannels();
+        this.sampleRate = inner.getSampleRate();
+
+        long budget = (long) CutsceneConfig.get().loopBudgetMb << 20;
+        if (budget > 0 && inner instanceof VideoPipeline pipeline) {
+            LoopStore recording = new LoopStore(budget, pipeline.isPaletteSource());
+            if (pipeline.record(recording)) {
+                store = recording;
+            }
+        }
+        for (int i = 0; i < views.length; i++) {
+            views[i] = new RawFrame();
+        }
+    }
+
+    /**
+     * Render thread: the pass on the wrapped backend has ended, start the next loop.
+     */
+    private void nextLoop() {
+        loop++;
+        if (store != null && store.isComplete() && inner instanceof VideoPipeline pipeline) {
+            pipeline.stopRecording();
+            inner = null;
+            // The replay pool is full with its own frames; this one goes home before the pipeline closes
+            pipeline.releaseFrame(innerFrame);
+            returnedFrame = innerFrame;
+            innerFrame = null;
+            EntsVideoPlayer.LOGGER.info("Loop store: {} frames, {} MB ({} MB as RGBA, {} palette-indexed); closing decoder",
+                    store.getFrames().size(), store.getUsedBytes() >> 20, store.getRawBytes() >> 20, store.getPalettedFrames());
+            startReplay();
+            // Stopping the stages, releasing the grabber and draining its line would stall the
+            // render thread right at the loop point; the replay no longer needs any of it
+            Thread closer = new Thread(pipeline::close, "Cutscene-Close-Thread");
+            closer.setDaemon(true);
+            closer.start();
+            return;
+        }
+
+        boolean rewound;
+        if (store != null) {
+            // Freed only once the pass's stages have exited
+            rewound = discardRecording(0L);
+        } else {
+            rewound = inner.rewind();
+        }
+        if (!rewound) {
+            failed = true;
+            return;
+        }
+        EntsVideoPlayer.LOGGER.info("Loop {}: restarting from the start (decoding again)", loop);
+    }
+
+    private void startReplay() {
+        frames = store.getFrames();
+        LoopStore.StoredFrame first = frames.get(0);
+        LoopStore.StoredFrame last = frames.get(frames.size() - 1);
+        baseUs = first.timestampUs;
+        long frameDurationUs = frames.size() > 1
+                ? (last.timestampUs - first.timestampUs) / (frames.size() - 1)
+                : (long) (1_000_000.0 / (frameRate > 0 ? frameRate : 30.0));
+        loopDurationUs = last.timestampUs - baseUs + frameDurationUs;
+
+        int maxBytes = 0;
+        for (LoopStore.StoredFrame frame : frames) {
+            maxBytes = Math.max(maxBytes, frame.width * frame.height * VideoPipeline.BYTES_PER_PIXEL);
+        }
+        expandPool = new FramePool(FRAMES_IN_FLIGHT, maxBytes);
+
+        ByteBuffer pcm = store.getAudio();
+        if (audioChannels > 0 && pcm.remaining() > 0) {
+            try {
+                AudioFormat format = new AudioFormat((float) sampleRate, 16, audioChannels, true,
+                        ByteOrder.nativeOrder() == ByteOrder.BIG_ENDIAN); // FFmpeg S16 is native-endian
+                audioLine = (SourceDataLine) AudioSystem.getLine(new DataLine.Info(SourceDataLine.class, format));
+                audioLine.open(format);
+                audioLine.start();
+            } catch (Exception e) {
+                EntsVideoPlayer.LOGGER.error("Failed to initialize audio", e);
+                audioLine = null;
+            }
+        }
+        clock = new PresentationClock(audioLine);
+
+        if (audioLine != null) {
+            int frameSize = audioLine.getFormat().getFrameSize();
+            long leadUs = Math.max(store.getAudioStartUs() - baseUs, 0L);
+            long leadBytes = leadUs * sampleRate / 1_000_000L * frameSize;
+            long pcmBytes = pcm.remaining() - pcm.remaining() % frameSize;
+            // Audio may run a little past the last frame; the loop is as long as the longer of the two
+            long audioUs = (leadBytes + pcmBytes) / frameSize * 1_000_000L / sampleRate;
+            loopDurationUs = Math.max(loopDurationUs, audioUs);
+            long loopBytes = loopDurationUs * sampleRate / 1_000_000L * frameSize;
+
+            audioThread = new Thread(() -> runReplayAudio(pcm, leadBytes, pcmBytes, loopBytes), "Cutscene-Audio-Thread");
+            audioThread.setDaemon(true);
+            audioThread.start();
+        }
+    }
+
+    /**
+     * Audio thread: write the recorded PCM once per loop, padded with silence to the loop length,
+     * so the line position is a continuous clock across loops.
+     */
+    private void runReplayAudio(ByteBuffer pcm, long leadBytes, long pcmBytes, long loopBytes) {
+        byte[] chunk = new byte[AUDIO_WRITE_FRAMES * audioLine.getFormat().getFrameSize()];
+        clock.onAudioStart(0L);
+        try {
+            while (running) {
+                long position = 0L;
+                while (running && position < loopBytes) {
+                    int n = (int) Math.min(chunk.length, loopBytes - position);
+                    long pcmPosition = position - leadBytes;
+                    if (pcmPosition < 0) {
+                        n = (int) Math.min(n, -pcmPosition);
+                        Arrays.fill(chunk, 0, n, (byte) 0);
+                    } else if (pcmPosition < pcmBytes) {
+                        n = (int) Math.min(n, pcmBytes - pcmPosition);
+                        pcm.get((int) pcmPosition, chunk, 0, n);
+                    } else {
+                        Arrays.fill(chunk, 0, n, (byte) 0);
+                    }
+                    audioLine.write(chunk, 0, n);
+                    position += n;
+                }
+            }
+        } catch (Exception e) {
+            EntsVideoPlayer.LOGGER.error("Error playing audio", e);
+        } finally {
+            clock.onAudioEnd();
+        }
+    }
+
+    /**
+     * Stream time of frame {@code index} in replay loop {@code replay}, on the continuous clock.
+     */
+    private long replayTimestamp(int replay, int index) {
+        return replay * loopDurationUs + frames.get(index).timestampUs - baseUs;
+    }
+
+    @Override
+    public boolean isFinished() {
+        // Called first thing every render, so this is where a finished pass turns into the next loop
+        if (inner != null && inner.isFinished()) {
+            nextLoop();
+        }
+        return failed;
+    }
+
+    @Override
+    public RawFrame peekFrame() {
+        if (inner != null) return inner.peekFrame();
+        if (nextIndex == frames.size()) {
+            nextIndex = 0;
+            finishReplayLoop();
+        }
+        peeked.timestampUs = replayTimestamp(replayLoop, nextIndex);
+        return peeked;
+    }
+
+    @Override
+    public RawFrame pollFrame() {
+        if (inner != null) {
+            RawFrame frame = inner.pollFrame();
+            if (frame != null) innerFrame = frame;
+            return frame;
+        }
+
+        long start = System.nanoTime();
+        if (nextIndex == frames.size()) {
+            nextIndex = 0;
+            finishReplayLoop();
+        }
+        // Skip straight to the newest frame that is already due, possibly in a later loop
+        long now = clock.nowUs();
+        int index = nextIndex;
+        int replay = replayLoop;
+        while (now != PresentationClock.NOT_STARTED) {
+            int nextI = index + 1;
+            int nextR = replay;
+            if (nextI == frames.size()) {
+                nextI = 0;
+                nextR++;
+            }
+            if (replayTimestamp(nextR, nextI) > now) break;
+            index = nextI;
+            replay = nextR;
+        }
+        while (replayLoop < replay) {
+            finishReplayLoop();
+        }
+        nextIndex = index + 1;
+
+        LoopStore.StoredFrame stored = frames.get(index);
+        RawFrame frame;
+        if (stored.paletted) {
+            try {
+                frame = expandPool.acquire(stored.width, stored.height, stored.width * VideoPipeline.BYTES_PER_PIXEL);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+            expandPalette(stored, frame);
+        } else {
+            frame = views[nextView];
+            nextView = (nextView + 1) % views.length;
+            frame.buffer = stored.view;
+            frame.width = stored.width;
+            frame.height = stored.height;
+            frame.stride = stored.width * VideoPipeline.BYTES_PER_PIXEL;
+        }
+        frame.timestampUs = replayTimestamp(replayLoop, index);
+
+        loopCpuNanos += System.nanoTime() - start;
+        return frame;
+    }
+
+    private void expandPalette(LoopStore.StoredFrame stored, RawFrame frame) {
+        for (int i = 0; i < palette.length; i++) {
+            palette[i] = MemoryUtil.memGetInt(stored.address + (long) i * Integer.BYTES);
+        }
+        long indices = stored.address + LoopStore.PALETTE_BYTES;
+        long dst = MemoryUtil.memAddress(frame.buffer, 0);
+        int pixels = stored.width * stored.height;
+        for (int i = 0; i < pixels; i++) {
+            MemoryUtil.memPutInt(dst + (long) i * VideoPipeline.BYTES_PER_PIXEL, palette[MemoryUtil.memGetByte(indices + i) & 0xFF]);
+        }
+    }
+
+    private void finishReplayLoop() {
+        replayLoop++;
+        loop++;
+        EntsVideoPlayer.LOGGER.info("Loop {}: {} frames replayed from memory, {} ms render-thread CPU, {} MB held",
+                loop, frames.size(), loopCpuNanos / 1_000_000L, store.getUsedBytes() >> 20);
+        loopCpuNanos = 0L;
+    }
+
+    @Override
+    public void releaseFrame(RawFrame frame) {
+        if (inner != null) {
+            if (frame == innerFrame) innerFrame = null;
+            inner.releaseFrame(frame);
+            return;
+        }
+        if (frame == null) return;
+        if (frame == returnedFrame) {
+            returnedFrame = null;
+            return;
+        }
+        for (RawFrame view : views) {
+            if (frame == view) return; // a view into the store, nothing to give back
+        }
+        expandPool.release(frame); // expanded palette frame
+    }
+
+    @Override
+    public long clockUs(long firstFramePtsUs) {
+        if (inner != null) return inner.clockUs(firstFramePtsUs);
+        long now = clock.nowUs();
+        if (now == PresentationClock.NOT_STARTED) {
+            clock.startIfNeeded(firstFramePtsUs);
+            now = clock.nowUs();
+        }
+        return now;
+    }
+
+    @Override
+    public void prepare() {
+        inner.prepare();
+    }
+
+    @Override
+    public void start() {
+        inner.start();
+    }
+
+    @Override
+    public AudioHandoff detachAudio() {
+        return null; // a loop never finishes, so it is never followed by another entry
+    }
+
+    @Override
+    public void attachAudio(AudioHandoff previous) {
+        if (inner != null) {
+            inner.attachAudio(previous);
+        } else if (previous != null) {
+            previous.close();
+        }
+    }
+
+    @Override
+    public boolean rewind() {
+        return inner != null && inner.rewind();
+    }
+
+    /**
+     * Seeks within the current pass. A clip already replaying from memory runs on one continuous
+     * clock and can't seek.
+     */
+    @Override
+    public boolean seek(long timestampUs) {
+        if (inner == null) return false;
+        if (store == null) return inner.seek(timestampUs);
+
+        // The recording would have a hole; loop by seeking instead
+        return discardRecording(timestampUs);
+    }
+
+    /**
+     * Stop recording and seek the pipeline to {@code timestampUs}. The store is freed on the seek
+     * thread, once the stages that were writing to it have exited.
+     */
+    private boolean discardRecording(long timestampUs) {
+        VideoPipeline pipeline = (VideoPipeline) inner;
+        LoopStore recording = store;
+        store = null;
+        pipeline.stopRecording();
+        return pipeline.seek(timestampUs, recording::close);
+    }
+
+    @Override
+    public int getVideoWidth() {
+        return videoWidth;
+    }
+
+    @Override
+    public int getVideoHeight() {
+        return videoHeight;
+    }
+
+    @Override
+    public int getTargetWidth() {
+        return inner != null ? inner.getTargetWidth() : frames.get(0).width;
+    }
+
+    @Override
+    public int getTargetHeight() {
+        return inner != null ? inner.getTargetHeight() : frames.get(0).height;
+    }
+
+    @Override
+    public void setTargetSize(int width, int height) {
+        // Replayed frames keep the size they were recorded at
+        if (inner != null) inner.setTargetSize(width, height);
+    }
+
+    @Override
+    public double getFrameRate() {
+        return frameRate;
+    }
+
+    @Override
+    public int getAudioChannels() {
+        return audioChannels;
+    }
+
+    @Override
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    @Override
+    public long getBufferedBytes() {
+        return (inner != null ? inner.getBufferedBytes() : 0L) + (store != null ? store.getUsedBytes() : 0L);
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        if (audioThread != null && audioThread.isAlive()) {
+            try {
+                audioThread.interrupt();
+                audioThread.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (audioLine != null) {
+            audioLine.stop();
+            audioLine.flush();
+            audioLine.close();
+        }
+        if (inner != null) {
+            inner.close();
+        }
+        if (store != null) {
+            store.close();
+        }
+        EntsVideoPlayer.LOGGER.info("Looped {} times", loop);
+    }
+}
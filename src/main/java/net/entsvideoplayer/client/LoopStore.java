@@ -0,0 +1,230 @@
+package net.entsvideoplayer.client;
+
+import net.entsvideoplayer.EntsVideoPlayer;
+
+import org.lwjgl.system.MemoryUtil;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Off-heap copy of a clip's converted frames and PCM, filled during the first pass of a looping
+ * cutscene so later loops never touch the decoder.
+ * <p>
+ * Frames of palette sources (GIF) are stored as a 256-entry RGBA palette plus one byte per pixel
+ * when they use at most 256 colours, a quarter of the RGBA size. Recording stops as soon as the
+ * clip exceeds the budget or the first pass loses a frame (dropped late, skipped or decoded at
+ * reduced quality), since replaying it would repeat the hole every loop; the owner frees the
+ * partial copy once the pipeline has stopped.
+ */
+final class LoopStore implements AutoCloseable {
+    static final int PALETTE_SIZE = 256;
+    static final int PALETTE_BYTES = PALETTE_SIZE * Integer.BYTES;
+
+    private final long budgetBytes;
+    private final boolean palette;
+
+    // Frames are added by the convert thread, audio by the decode thread; both are read only
+    // after the pipeline that filled them has stopped
+    private final List<StoredFrame> frames = new ArrayList<>();
+    private final AtomicLong usedBytes = new AtomicLong();
+    private long rawBytes = 0L;
+    private volatile boolean overflowed = false;
+
+    private long audioAddress = 0L;
+    private long audioCapacity = 0L;
+    private long audioBytes = 0L;
+    private volatile long audioStartUs = PresentationClock.NOT_STARTED;
+
+    // Convert thread scratch for palette lookup: open addressing, colour -> index
+    private final int[] colorKeys = new int[PALETTE_SIZE * 2];
+    private final int[] colorIndex = new int[PALETTE_SIZE * 2];
+    private final int[] paletteColors = new int[PALETTE_SIZE];
+
+    /**
+     * A stored frame. {@link #view} covers the RGBA pixels, or the palette followed by the indices.
+     */
+    static final class StoredFrame {
+        final long address;
+        final int length;
+        final boolean paletted;
+        final int width;
+        final int height;
+        final long timestampUs;
+        final ByteBuffer view;
+
+        StoredFrame(long address, int length, boolean paletted, int width, int height, long timestampUs) {
+            this.address = address;
+            this.length = length;
+            this.paletted = paletted;
+            this.width = width;
+            this.height = height;
+            this.timestampUs = timestampUs;
+            this.view = MemoryUtil.memByteBuffer(address, length);
+        }
+    }
+
+    /**
+     * @param budgetBytes Most memory frames and audio together may use
+     * @param palette Try 8-bit palette storage (for GIF sources)
+     */
+    LoopStore(long budgetBytes, boolean palette) {
+        this.budgetBytes = budgetBytes;
+        this.palette = palette;
+    }
+
+    /**
+     * Convert thread: keep a copy of a converted frame.
+     */
+    void addFrame(RawFrame frame) {
+        if (overflowed) return;
+        int rgbaBytes = frame.stride * frame.height;
+        long src = MemoryUtil.memAddress(frame.buffer, 0);
+        rawBytes += rgbaBytes;
+
+        if (palette) {
+            int pixels = frame.width * frame.height;
+            if (frame.stride == frame.width * VideoPipeline.BYTES_PER_PIXEL && reserve(PALETTE_BYTES + pixels)) {
+                long dst = MemoryUtil.nmemAlloc(PALETTE_BYTES + pixels);
+                if (encodePalette(src, pixels, dst)) {
+                    frames.add(new StoredFrame(dst, PALETTE_BYTES + pixels, true, frame.width, frame.height, frame.timestampUs));
+                    return;
+                }
+                // More than 256 colours: store as RGBA instead
+                MemoryUtil.nmemFree(dst);
+                usedBytes.addAndGet(-(PALETTE_BYTES + pixels));
+            }
+            if (overflowed) return;
+        }
+
+        if (!reserve(rgbaBytes)) return;
+        long dst = MemoryUtil.nmemAlloc(rgbaBytes);
+        MemoryUtil.memCopy(src, dst, rgbaBytes);
+        frames.add(new StoredFrame(dst, rgbaBytes, false, frame.width, frame.height, frame.timestampUs));
+    }
+
+    /**
+     * Decode thread: the first recorded audio sample has timestamp {@code ptsUs}.
+     */
+    void onAudioStart(long ptsUs) {
+        if (audioStartUs == PresentationClock.NOT_STARTED) {
+            audioStartUs = ptsUs;
+        }
+    }
+
+    /**
+     * Decode thread: append {@code bytes} of interleaved PCM from the start of {@code src}.
+     */
+    void addAudio(ByteBuffer src, int bytes) {
+        if (overflowed || !reserve(bytes)) return;
+        if (audioBytes + bytes > audioCapacity) {
+            long capacity = Math.max(audioCapacity * 2, audioBytes + bytes);
+            audioAddress = MemoryUtil.nmemRealloc(audioAddress, capacity);
+            audioCapacity = capacity;
+        }
+        MemoryUtil.memCopy(MemoryUtil.memAddress(src, 0), audioAddress + audioBytes, bytes);
+        audioBytes += bytes;
+    }
+
+    private boolean reserve(long bytes) {
+        if (usedBytes.addAndGet(bytes) <= budgetBytes) return true;
+        abandon("exceeds loopBudgetMb (" + (budgetBytes >> 20) + " MB)");
+        return false;
+    }
+
+    /**
+     * Stop recording: the copy can't be replayed, later loops seek to the start instead.
+     * @param reason What went wrong, for the log
+     */
+    void abandon(String reason) {
+        if (overflowed) return;
+        overflowed = true;
+        EntsVideoPlayer.LOGGER.info("Loop clip {}, will seek to start instead", reason);
+    }
+
+    /**
+     * @return true if every pixel fit a 256-colour palette; {@code dst} then holds palette + indices
+     */
+    private boolean encodePalette(long src, int pixels, long dst) {
+        Arrays.fill(colorKeys, 0);
+        Arrays.fill(colorIndex, -1);
+        int colors = 0;
+        long indices = dst + PALETTE_BYTES;
+        int mask = colorKeys.length - 1;
+
+        for (int i = 0; i < pixels; i++) {
+            int rgba = MemoryUtil.memGetInt(src + (long) i * VideoPipeline.BYTES_PER_PIXEL);
+            int slot = (rgba * 0x9E3779B9) >>> 23 & mask;
+            while (colorIndex[slot] >= 0 && colorKeys[slot] != rgba) {
+                slot = (slot + 1) & mask;
+            }
+            int index = colorIndex[slot];
+            if (index < 0) {
+                if (colors == PALETTE_SIZE) return false;
+                index = colors++;
+                colorKeys[slot] = rgba;
+                colorIndex[slot] = index;
+                paletteColors[index] = rgba;
+            }
+            MemoryUtil.memPutByte(indices + i, (byte) index);
+        }
+
+        for (int i = 0; i < PALETTE_SIZE; i++) {
+            MemoryUtil.memPutInt(dst + (long) i * Integer.BYTES, i < colors ? paletteColors[i] : 0);
+        }
+        return true;
+    }
+
+    /**
+     * @return true if the whole first pass was kept and can be replayed
+     */
+    boolean isComplete() {
+        return !overflowed && !frames.isEmpty();
+    }
+
+    List<StoredFrame> getFrames() {
+        return frames;
+    }
+
+    /**
+     * @return PCM bytes as a view over the native store (empty if the clip has no audio)
+     */
+    ByteBuffer getAudio() {
+        return audioBytes > 0 ? MemoryUtil.memByteBuffer(audioAddress, (int) audioBytes) : ByteBuffer.allocateDirect(0);
+    }
+
+    long getAudioStartUs() {
+        return audioStartUs;
+    }
+
+    long getUsedBytes() {
+        return usedBytes.get();
+    }
+
+    /**
+     * @return What the frames would take as plain RGBA, to report the palette savings
+     */
+    long getRawBytes() {
+        return rawBytes;
+    }
+
+    long getPalettedFrames() {
+        return frames.stream().filter(f -> f.paletted).count();
+    }
+
+    @Override
+    public void close() {
+        for (StoredFrame frame : frames) {
+            MemoryUtil.nmemFree(frame.address);
+        }
+        frames.clear();
+        if (audioAddress != 0L) {
+            MemoryUtil.nmemFree(audioAddress);
+            audioAddress = 0L;
+        }
+        usedBytes.set(0L);
+    }
+}
@@ -0,0 +1,195 @@
+package net.entsvideoplayer.client;
+
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.resource.Resource;
+import net.minecraft.util.Identifier;
+
+import org.bytedeco.javacv.FFmpegFrameGrabber;
+import org.bytedeco.javacv.FrameGrabber;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Optional;
+
+/**
+ * Resource-pack videos, read straight from the pack instead of being copied to a temp file first.
+ * <p>
+ * Pack videos are addressed as {@code pack://<namespace>/<path>} so they can be passed around,
+ * preloaded and cached like any other source string. The grabber reads them through JavaCV's
+ * InputStream-backed FFmpeg I/O context, which seeks by resetting the stream to its mark and
+ * skipping forward; {@link ResourceInputStream} makes that cheap where the pack allows it.
+ */
+public final class PackVideoSource {
+    private static final String SCHEME = "pack://";
+
+    private PackVideoSource() {}
+
+    public static String uri(Identifier id) {
+        return SCHEME + id.getNamespace() + "/" + id.getPath();
+    }
+
+    public static boolean isPackUri(String source) {
+        return source.startsWith(SCHEME);
+    }
+
+    /**
+     * @return Id of the pack that currently provides {@code source}
+     */
+    static String getPackId(String source) throws IOException {
+        return findResource(source).getPackId();
+    }
+
+    /**
+     * Create an unstarted grabber that reads {@code source} from the current resource packs.
+     */
+    static FFmpegFrameGrabber createGrabber(String source) throws FrameGrabber.Exception {
+        Resource resource;
+        try {
+            resource = findResource(source);
+        } catch (IOException e) {
+            throw new FrameGrabber.Exception(e.getMessage(), e);
+        }
+
+        try {
+            ResourceInputStream in = new ResourceInputStream(resource);
+            // A positive maximum size enables seeking; our stream supports mark/reset itself, so
+            // JavaCV does not wrap it in a BufferedInputStream that would hold the whole file
+            return new FFmpegFrameGrabber(in, Integer.MAX_VALUE);
+        } catch (IOException e) {
+            throw new FrameGrabber.Exception("Failed to open " + source + ": " + e.getMessage(), e);
+        }
+    }
+
+    private static Resource findResource(String source) throws IOException {
+        String location = source.substring(SCHEME.length());
+        int slash = location.indexOf('/');
+        if (slash <= 0) {
+            throw new IOException("Invalid pack video: " + source);
+        }
+        Identifier id = Identifier.of(location.substring(0, slash), location.substring(slash + 1));
+
+        Optional<Resource> resource = MinecraftClient.getInstance().getResourceManager().getResource(id);
+        if (resource.isEmpty()) {
+            throw new IOException("Resource not found: " + id);
+        }
+        return resource.get();
+    }
+
+    /**
+     * Seekable view of a pack resource. {@link #reset()} goes back to the start of the resource by
+     * reopening it, and {@link #skip(long)} uses the underlying stream's skip: a seek on a
+     * directory pack (file stream) or a stored zip entry, a decompress-and-discard on a deflated one.
+     */
+    private static final class ResourceInputStream extends InputStream {
+        // Skip step when measuring a resource; a stream that skips all of it may have gone past the end
+        private static final long MEASURE_CHUNK = 64L * 1024L * 1024L;
+
+        private final Resource resource;
+        // Length of the resource, -1 until the first skip measures it; bounds skip() so seeking to
+        // the end works (JavaCV finds the end by skipping until nothing is skipped)
+        private long size = -1L;
+        private InputStream in;
+        private long position = 0L;
+
+        ResourceInputStream(Resource resource) throws IOException {
+            this.resource = resource;
+            this.in = resource.getInputStream();
+        }
+
+        /**
+         * Length of the resource, on a stream of its own. Skips where the pack can seek and only
+         * reads everything when a skip can't be trusted to stop at the end (available() would be
+         * cheaper, but doesn't promise the remaining length).
+         */
+        private static long measure(Resource resource) throws IOException {
+            try (InputStream in = resource.getInputStream()) {
+                if (in instanceof FileInputStream file) {
+                    return file.getChannel().size();
+                }
+                long length = 0L;
+                while (true) {
+                    long skipped = in.skip(MEASURE_CHUNK);
+                    if (skipped == MEASURE_CHUNK) {
+                        // Either a full chunk or a stream that skips past the end (FileInputStream-like)
+                        if (in.read() < 0) return count(resource);
+                        length += skipped + 1;
+                    } else if (skipped > 0) {
+                        length += skipped;
+                    } else if (in.read() >= 0) {
+                        // Some streams only skip what is buffered
+                        length++;
+                    } else {
+                        return length;
+                    }
+                }
+            }
+        }
+
+        private static long count(Resource resource) throws IOException {
+            try (InputStream in = resource.getInputStream()) {
+                return in.transferTo(OutputStream.nullOutputStream());
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = in.read();
+            if (b >= 0) position++;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = in.read(b, off, len);
+            if (n > 0) position += n;
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            if (n <= 0) return 0L;
+            if (size < 0) size = measure(resource);
+            n = Math.min(n, size - position);
+            if (n <= 0) return 0L;
+            long skipped = in.skip(n);
+            if (skipped <= 0) {
+                // Some streams only skip what is buffered; fall back to reading
+                skipped = in.read() >= 0 ? 1 : 0;
+            }
+            position += skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return in.available();
+        }
+
+        @Override
+        public boolean markSupported() {
+            return true;
+        }
+
+        /**
+         * The mark is always the start of the resource (JavaCV marks once, before reading).
+         */
+        @Override
+        public synchronized void mark(int readLimit) {
+        }
+
+        @Override
+        public synchronized void reset() throws IOException {
+            if (position == 0L) return;
+            in.close();
+            in = resource.getInputStream();
+            position = 0L;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
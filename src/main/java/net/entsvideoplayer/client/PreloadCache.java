@@ -0,0 +1,167 @@
+package net.entsvideoplayer.client;
+
+import net.entsvideoplayer.EntsVideoPlayer;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Warm pipelines for cutscenes that are expected to play soon.
+ * <p>
+ * A preload opens and probes the source in the background and pre-rolls the first frames and
+ * audio ({@link CutscenePlayback#prepare()}), so a later {@link CutsceneScreen} for the same source
+ * starts without any open latency. The cache holds at most {@code preloadMaxCount} pipelines
+ * within {@code preloadBudgetMb} of buffers; the oldest are evicted first, and unused ones are
+ * closed after {@code preloadIdleSeconds}.
+ */
+public final class PreloadCache {
+    private static final long IDLE_CHECK_SECONDS = 5;
+
+    // Insertion order = preload order, so the first entry is the oldest
+    private static final Map<String, Entry> entries = new LinkedHashMap<>();
+    private static ScheduledExecutorService executor;
+
+    private PreloadCache() {}
+
+    private static final class Entry {
+        final CompletableFuture<CutscenePlayback> pipeline = new CompletableFuture<>();
+        final long startNanos = System.nanoTime();
+        volatile long lastUsedNanos = startNanos;
+    }
+
+    /**
+     * Start opening and pre-rolling {@code videoPath} in the background. Does nothing if it is
+     * already preloaded (other than keeping it alive) or preloading is disabled.
+     */
+    public static synchronized void preload(String videoPath) {
+        CutsceneConfig config = CutsceneConfig.get();
+        if (config.preloadMaxCount <= 0) return;
+
+        Entry existing = entries.get(videoPath);
+        if (existing != null) {
+            existing.lastUsedNanos = System.nanoTime();
+            return;
+        }
+
+        while (entries.size() >= config.preloadMaxCount) {
+            evictOldest("count limit");
+        }
+
+        Entry entry = new Entry();
+        entries.put(videoPath, entry);
+        executor().execute(() -> open(videoPath, entry));
+    }
+
+    /**
+     * Take the preloaded pipeline for {@code videoPath} out of the cache; the caller now owns it.
+     *
+     * @return The (possibly still opening) pipeline, or null if the source was not preloaded
+     */
+    static synchronized CompletableFuture<CutscenePlayback> take(String videoPath) {
+        Entry entry = entries.remove(videoPath);
+        if (entry == null) return null;
+        EntsVideoPlayer.LOGGER.info("Using preloaded {} ({})", videoPath,
+                entry.pipeline.isDone() ? "ready" : "still opening");
+        return entry.pipeline;
+    }
+
+    /**
+     * Close every preloaded pipeline, e.g. when leaving a world.
+     */
+    public static synchronized void clear() {
+        while (!entries.isEmpty()) {
+            evictOldest("cleared");
+        }
+    }
+
+    /**
+     * Runs on the preload thread, one source at a time.
+     */
+    private static void open(String videoPath, Entry entry) {
+        CutscenePlayback pipeline;
+        try {
+            pipeline = CutscenePlayback.open(videoPath);
+            pipeline.prepare();
+        } catch (Exception e) {
+            EntsVideoPlayer.LOGGER.error("Failed to preload {}", videoPath, e);
+            synchronized (PreloadCache.class) {
+                entries.remove(videoPath, entry);
+            }
+            entry.pipeline.completeExceptionally(e);
+            return;
+        }
+
+        EntsVideoPlayer.LOGGER.info("Preloaded {} in {} ms ({} MB buffered)", videoPath,
+                (System.nanoTime() - entry.startNanos) / 1_000_000L, pipeline.getBufferedBytes() >> 20);
+        // Completing may hand the pipeline to a screen that is already waiting for it
+        entry.pipeline.complete(pipeline);
+        synchronized (PreloadCache.class) {
+            enforceBudget();
+        }
+    }
+
+    private static void enforceBudget() {
+        long budget = (long) CutsceneConfig.get().preloadBudgetMb << 20;
+        while (!entries.isEmpty() && bufferedBytes() > budget) {
+            evictOldest("memory budget");
+        }
+    }
+
+    private static long bufferedBytes() {
+        long total = 0L;
+        for (Entry entry : entries.values()) {
+            CutscenePlayback pipeline = entry.pipeline.getNow(null);
+            if (pipeline != null) {
+                total += pipeline.getBufferedBytes();
+            }
+        }
+        return total;
+    }
+
+    private static void evictIdle() {
+        long idleNanos = TimeUnit.SECONDS.toNanos(CutsceneConfig.get().preloadIdleSeconds);
+        long now = System.nanoTime();
+        synchronized (PreloadCache.class) {
+            Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<String, Entry> e = it.next();
+                if (now - e.getValue().lastUsedNanos > idleNanos) {
+                    it.remove();
+                    discard(e.getKey(), e.getValue(), "unused");
+                }
+            }
+        }
+    }
+
+    private static void evictOldest(String reason) {
+        Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+        Map.Entry<String, Entry> oldest = it.next();
+        it.remove();
+        discard(oldest.getKey(), oldest.getValue(), reason);
+    }
+
+    private static void discard(String videoPath, Entry entry, String reason) {
+        EntsVideoPlayer.LOGGER.info("Evicting preloaded {} ({})", videoPath, reason);
+        // A pipeline that is still opening is closed as soon as it is ready
+        entry.pipeline.whenComplete((pipeline, error) -> {
+            if (pipeline != null) pipeline.close();
+        });
+    }
+
+    private static ScheduledExecutorService executor() {
+        if (executor == null) {
+            executor = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "Cutscene-Preload-Thread");
+                thread.setDaemon(true);
+                return thread;
+            });
+            executor.scheduleWithFixedDelay(PreloadCache::evictIdle, IDLE_CHECK_SECONDS, IDLE_CHECK_SECONDS, TimeUnit.SECONDS);
+        }
+        return executor;
+    }
+}
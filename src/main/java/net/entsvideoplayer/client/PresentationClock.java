@@ -0,0 +1,163 @@
+package net.entsvideoplayer.client;
+
+import javax.sound.sampled.SourceDataLine;
+
+/**
+ * Media clock that decides which video frame is due.
+ * <p>
+ * While audio is playing the clock is driven by the audio device position
+ * ({@link SourceDataLine#getLongFramePosition()}), so video follows what the player actually hears.
+ * Without audio, or once the audio track has ended, it falls back to the wall clock.
+ * All times are stream timestamps in microseconds.
+ */
+class PresentationClock {
+    static final long NOT_STARTED = Long.MIN_VALUE;
+
+    private final SourceDataLine audioLine;
+    private final float sampleRate;
+    // Line position (in sample frames) when this clock started, for a line reused across restarts
+    private final long startFramePosition;
+
+    // Stream timestamp of the first sample written to the audio line
+    private volatile long audioStartPtsUs = NOT_STARTED;
+    private volatile boolean audioEnded = false;
+
+    // Wall clock anchor: stream timestamp ptsUs was current at nanos
+    private volatile long wallStartNanos = -1;
+    private volatile long wallStartPtsUs;
+    // Rebuffering: the wall clock holds at wallStartPtsUs (the audio clock stops with its line)
+    private volatile boolean paused = false;
+
+    /**
+     * @param audioLine Line the audio stage writes to, or null for wall-clock only playback
+     */
+    PresentationClock(SourceDataLine audioLine) {
+        this(audioLine, 0L);
+    }
+
+    /**
+     * @param startFramePosition Frames the line had already played before this clock's first sample
+     */
+    PresentationClock(SourceDataLine audioLine, long startFramePosition) {
+        this.audioLine = audioLine;
+        this.sampleRate = audioLine != null ? audioLine.getFormat().getSampleRate() : 0f;
+        this.startFramePosition = startFramePosition;
+    }
+
+    /**
+     * @return A clock on {@code audioLine} that keeps the audio start already recorded here, for a
+     *         pipeline that pre-rolled on one line and plays on another (handed over by a playlist)
+     */
+    PresentationClock withLine(SourceDataLine audioLine, long startFramePosition) {
+        PresentationClock clock = new PresentationClock(audioLine, startFramePosition);
+        clock.audioStartPtsUs = audioStartPtsUs;
+        clock.anchorWallToAudio();
+        return clock;
+    }
+
+    /**
+     * Audio stage: the first chunk with timestamp {@code ptsUs} is about to be written.
+     */
+    synchronized void onAudioStart(long ptsUs) {
+        if (audioStartPtsUs == NOT_STARTED) {
+            audioStartPtsUs = ptsUs;
+            // (Re)start the wall clock at the same moment, so audio - wall is the device's drift.
+            // Audio drives playback from here, so this doesn't move what is shown
+            wallStartPtsUs = ptsUs;
+            wallStartNanos = System.nanoTime();
+        }
+    }
+
+    /**
+     * Audio stage: no more audio will be written. Continue on the wall clock from the current position.
+     */
+    synchronized void onAudioEnd() {
+        if (audioEnded) return;
+        long now = audioClockUs();
+        if (now != NOT_STARTED) {
+            wallStartPtsUs = now;
+            wallStartNanos = System.nanoTime();
+        }
+        audioEnded = true;
+    }
+
+    /**
+     * Render thread: anchor the wall clock to the first presented frame if nothing is driving the clock yet.
+     */
+    synchronized void startIfNeeded(long ptsUs) {
+        if (wallStartNanos < 0) {
+            wallStartPtsUs = ptsUs;
+            wallStartNanos = System.nanoTime();
+        }
+    }
+
+    /**
+     * Hold the wall clock where it is. The audio clock follows the line, which the caller stops.
+     */
+    synchronized void pause() {
+        if (paused) return;
+        long now = wallClockUs();
+        if (now != NOT_STARTED) {
+            wallStartPtsUs = now;
+        }
+        paused = true;
+    }
+
+    /**
+     * Continue the wall clock from where {@link #pause()} held it, or from the audio clock while
+     * audio drives playback (the line doesn't stop exactly when asked, so the two would disagree).
+     */
+    synchronized void resume() {
+        if (!paused) return;
+        paused = false;
+        if (!anchorWallToAudio() && wallStartNanos >= 0) {
+            wallStartNanos = System.nanoTime();
+        }
+    }
+
+    /**
+     * @return Current media time in microseconds, or {@link #NOT_STARTED}
+     */
+    long nowUs() {
+        if (!audioEnded) {
+            long audio = audioClockUs();
+            if (audio != NOT_STARTED) return audio;
+        }
+        return wallClockUs();
+    }
+
+    /**
+     * @return How far the audio device clock is ahead (positive) or behind the wall clock, in microseconds
+     */
+    long getDriftUs() {
+        long audio = audioClockUs();
+        long wall = wallClockUs();
+        if (audio == NOT_STARTED || wall == NOT_STARTED || audioEnded) return 0L;
+        return audio - wall;
+    }
+
+    /**
+     * Restart the wall clock at the current audio position.
+     * @return False if there is no running audio clock to anchor to
+     */
+    private synchronized boolean anchorWallToAudio() {
+        if (audioEnded) return false;
+        long audio = audioClockUs();
+        if (audio == NOT_STARTED) return false;
+        wallStartPtsUs = audio;
+        wallStartNanos = System.nanoTime();
+        return true;
+    }
+
+    private long audioClockUs() {
+        if (audioLine == null || audioStartPtsUs == NOT_STARTED || sampleRate <= 0f) return NOT_STARTED;
+        long playedFrames = audioLine.getLongFramePosition() - startFramePosition;
+        return audioStartPtsUs + (long) (playedFrames * 1_000_000.0 / sampleRate);
+    }
+
+    private long wallClockUs() {
+        if (wallStartNanos < 0) return NOT_STARTED;
+        if (paused) return wallStartPtsUs;
+        return wallStartPtsUs + (System.nanoTime() - wallStartNanos) / 1000L;
+    }
+}
@@ -0,0 +1,167 @@
+package net.entsvideoplayer.client;
+
+import net.entsvideoplayer.EntsVideoPlayer;
+
+/**
+ * Lowers decode quality one step at a time while the pipeline can't keep up with the stream, and
+ * raises it again once there is headroom. Looks at three signals over one-second windows: time per
+ * frame in the decode and convert stages against the frame duration, late frames dropped, and how
+ * full the converted-frame queue is kept (a queue that never fills means the renderer is waiting).
+ * <p>
+ * The decode thread reports decode times, the convert thread everything else and evaluates.
+ */
+final class QualityController {
+    /**
+     * Quality steps, each cheaper than the last and including the savings of the ones before.
+     */
+    enum Level {
+        FULL(1.0, false, false),
+        SCALE_75(0.75, false, false),
+        SCALE_50(0.5, false, false),
+        // Decoder skips frames nothing else references (B-frames in most encodes)
+        SKIP_NONREF(0.5, true, false),
+        // Only every other decoded frame is converted and shown
+        HALF_RATE(0.5, true, true);
+
+        final double scale;
+        final boolean skipNonRef;
+        final boolean halfRate;
+
+        Level(double scale, boolean skipNonRef, boolean halfRate) {
+            this.scale = scale;
+            this.skipNonRef = skipNonRef;
+            this.halfRate = halfRate;
+        }
+    }
+
+    private static final long WINDOW_NANOS = 1_000_000_000L;
+    // After any change, give the new level this long before judging it
+    private static final long SETTLE_NANOS = 2_000_000_000L;
+    // A stage busy for more than this share of the frame duration is too slow
+    private static final double MAX_LOAD = 0.9;
+    // Below this share, stepping up is safe (the next level up costs up to ~2x)
+    private static final double HEADROOM_LOAD = 0.45;
+    private static final double MAX_DROP_RATIO = 0.05;
+    // Good windows needed before stepping up; doubles each time a step up has to be undone
+    private static final int MIN_GOOD_WINDOWS = 5;
+    private static final int MAX_GOOD_WINDOWS = 60;
+
+    private final Level lowest;
+    private final long frameDurationUs;
+    private final int queueCapacity;
+
+    private volatile Level level = Level.FULL;
+
+    // Decode thread
+    private volatile long decodeNanos;
+    private volatile long decodedFrames;
+
+    // Convert thread
+    private long convertNanos;
+    private long convertedFrames;
+    private long dropped;
+    private long queueDepthSum;
+    private long windowStartNanos = System.nanoTime();
+    private long settleUntilNanos = 0L;
+    private long lastDecodeNanos;
+    private long lastDecodedFrames;
+    private int goodWindows = 0;
+    private int goodWindowsNeeded = MIN_GOOD_WINDOWS;
+    private boolean steppedUp = false;
+
+    /**
+     * @param maxDrop How many levels below full quality the controller may go, 0 to never adapt
+     * @param queueCapacity Size of the converted-frame queue
+     */
+    QualityController(int maxDrop, long frameDurationUs, int queueCapacity) {
+        Level[] levels = Level.values();
+        this.lowest = levels[Math.min(Math.max(maxDrop, 0), levels.length - 1)];
+        this.frameDurationUs = frameDurationUs;
+        this.queueCapacity = queueCapacity;
+    }
+
+    Level level() {
+        return level;
+    }
+
+    /**
+     * Decode thread: one video frame took {@code nanos} inside the decoder.
+     */
+    void onDecoded(long nanos) {
+        decodeNanos += nanos;
+        decodedFrames++;
+    }
+
+    /**
+     * Convert thread: one frame was converted in {@code nanos}, leaving {@code queueDepth} frames queued.
+     */
+    void onConverted(long nanos, int queueDepth) {
+        convertNanos += nanos;
+        convertedFrames++;
+        queueDepthSum += queueDepth;
+    }
+
+    /**
+     * Convert thread: a late frame was dropped before conversion.
+     */
+    void onDropped() {
+        dropped++;
+    }
+
+    /**
+     * Convert thread: close the window if it is over and step the level if needed.
+     * @return True if the level changed
+     */
+    boolean evaluate() {
+        long now = System.nanoTime();
+        if (now - windowStartNanos < WINDOW_NANOS) return false;
+
+        long decodeDelta = decodeNanos - lastDecodeNanos;
+        long decodedDelta = decodedFrames - lastDecodedFrames;
+        lastDecodeNanos += decodeDelta;
+        lastDecodedFrames += decodedDelta;
+        long decodeUs = decodedDelta > 0 ? decodeDelta / decodedDelta / 1000L : 0L;
+        long convertUs = convertedFrames > 0 ? convertNanos / convertedFrames / 1000L : 0L;
+        long shown = convertedFrames + dropped;
+        double dropRatio = shown > 0 ? (double) dropped / shown : 0.0;
+        double queueFill = convertedFrames > 0 ? (double) queueDepthSum / convertedFrames / queueCapacity : 1.0;
+        // Stages run in parallel, so the slowest one sets the pace
+        double load = (double) Math.max(decodeUs, convertUs) / frameDurationUs;
+
+        long windowDropped = dropped;
+        convertNanos = 0L;
+        convertedFrames = 0L;
+        dropped = 0L;
+        queueDepthSum = 0L;
+        windowStartNanos = now;
+        if (now < settleUntilNanos || shown == 0) return false;
+
+        boolean behind = dropRatio > MAX_DROP_RATIO || load > MAX_LOAD || queueFill < 0.25;
+        boolean headroom = windowDropped == 0 && load < HEADROOM_LOAD && queueFill >= 0.5;
+
+        Level next = level;
+        if (behind) {
+            goodWindows = 0;
+            if (steppedUp) {
+                // The last step up didn't hold; wait longer before trying again
+                goodWindowsNeeded = Math.min(goodWindowsNeeded * 2, MAX_GOOD_WINDOWS);
+            }
+            steppedUp = false;
+            if (level.ordinal() < lowest.ordinal()) next = Level.values()[level.ordinal() + 1];
+        } else if (headroom && level != Level.FULL && ++goodWindows >= goodWindowsNeeded) {
+            goodWindows = 0;
+            steppedUp = true;
+            next = Level.values()[level.ordinal() - 1];
+        } else if (!headroom) {
+            goodWindows = 0;
+        }
+        if (next == level) return false;
+
+        EntsVideoPlayer.LOGGER.info("Decode quality {} -> {} (decode {} us, convert {} us per frame of {} us, {}% late, queue {}% full)",
+                level, next, decodeUs, convertUs, frameDurationUs, Math.round(dropRatio * 100),
+                Math.round(queueFill * 100));
+        level = next;
+        settleUntilNanos = now + SETTLE_NANOS;
+        return true;
+    }
+}
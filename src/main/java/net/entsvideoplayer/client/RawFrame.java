@@ -0,0 +1,20 @@
+package net.entsvideoplayer.client;
+
+import org.bytedeco.javacpp.BytePointer;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A decoded video frame converted to RGBA into a buffer we own.
+ * Instances are recycled through a {@link FramePool}.
+ */
+class RawFrame {
+    ByteBuffer buffer;
+    int width, height;
+    int stride;
+    long timestampUs;
+    long enqueuedNanos;
+
+    // JavaCPP view of buffer for swscale, created lazily by FrameConverter
+    BytePointer pointer;
+}
@@ -0,0 +1,625 @@
+package net.entsvideoplayer.client;
+
+import net.entsvideoplayer.EntsVideoPlayer;
+import net.fabricmc.loader.api.FabricLoader;
+
+import org.bytedeco.javacv.FFmpegFrameGrabber;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * On-disk cache for https video sources, next to the FFmpeg libraries in mods/entsvideoplayer-lib/cache.
+ * <p>
+ * Files are stored by the SHA-256 of their content, so the same video behind two URLs is kept
+ * once. The index maps each URL to its content hash together with the ETag/Last-Modified the
+ * server sent; hits are revalidated with a conditional request when the server sent either
+ * (and served as-is when it can't be reached). On a miss the download is written to a .part file while playback
+ * already reads it through {@link GrowingFileInputStream}; a second play of the same URL during
+ * the download shares it. The least recently used entries are evicted beyond {@code cacheMaxMb}.
+ * <p>
+ * Only complete files with a known length are cached; playlists (HLS/DASH) and unknown lengths
+ * go straight to FFmpeg. Other files with a known length that can't be kept (plain http, cache
+ * disabled, too big for it) are still downloaded the same way into a temporary file, deleted once
+ * playback closes it, so the jitter buffer can hold as much of them as it is configured to.
+ */
+public final class VideoCache {
+    private static final String INDEX_FILE = "index.tsv";
+    private static final int CONNECT_TIMEOUT_MS = 10_000;
+    private static final int READ_TIMEOUT_MS = 30_000;
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+    private static final long WAIT_PARK_NANOS = 1_000_000L;
+
+    private static VideoCache instance;
+
+    private final Path dir;
+    private final long maxBytes;
+    // Urls with this prefix are kept; anything else is only downloaded for playback
+    private final String cachedScheme;
+    // Runs each download's copy loop
+    private final Executor downloader;
+    private final Map<String, Entry> index = new HashMap<>();
+    private final Map<String, Download> inFlight = new ConcurrentHashMap<>();
+    // Grabbers reading a download in progress, so playback can see how far ahead the download is
+    private final Map<FFmpegFrameGrabber, GrowingFileInputStream> readers = Collections.synchronizedMap(new WeakHashMap<>());
+
+    // Stats for this session
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong bytesSaved = new AtomicLong();
+
+    /**
+     * @param hash SHA-256 of the content, also the file name
+     * @param lastAccess Epoch millis of the last play, for LRU eviction
+     */
+    private record Entry(String hash, long size, long lastAccess, String etag, String lastModified) {
+        Entry touch() {
+            return new Entry(hash, size, System.currentTimeMillis(), etag, lastModified);
+        }
+    }
+
+    private VideoCache(Path dir, long maxBytes) {
+        this(dir, maxBytes, "https://");
+    }
+
+    VideoCache(Path dir, long maxBytes, String cachedScheme) {
+        this(dir, maxBytes, cachedScheme, task -> {
+            Thread thread = new Thread(task, "Cutscene-Cache-Thread");
+            thread.setDaemon(true);
+            thread.start();
+        });
+    }
+
+    VideoCache(Path dir, long maxBytes, String cachedScheme, Executor downloader) {
+        this.dir = dir;
+        this.maxBytes = maxBytes;
+        this.cachedScheme = cachedScheme;
+        this.downloader = downloader;
+        try {
+            Files.createDirectories(dir);
+            loadIndex();
+        } catch (IOException e) {
+            EntsVideoPlayer.LOGGER.error("Failed to initialize video cache in {}", dir, e);
+        }
+    }
+
+    public static synchronized VideoCache get() {
+        if (instance == null) {
+            Path dir = FabricLoader.getInstance().getGameDir().resolve("mods").resolve("entsvideoplayer-lib").resolve("cache");
+            instance = new VideoCache(dir, (long) CutsceneConfig.get().cacheMaxMb << 20);
+        }
+        return instance;
+    }
+
+    /**
+     * @return true if {@code source} is a kind of source the cache handles (https, cache enabled)
+     */
+    static boolean isCacheable(String source) {
+        return source.startsWith("https://") && CutsceneConfig.get().cacheMaxMb > 0;
+    }
+
+    /**
+     * @return true if {@code source} is read through {@link #createGrabber(String)}, cached or not
+     */
+    static boolean isBufferable(String source) {
+        return source.startsWith("https://") || source.startsWith("http://");
+    }
+
+    /**
+     * Where to read a url from: a complete cached file, a download still being written, or
+     * neither (both null) to let FFmpeg stream it itself.
+     */
+    record Source(Path file, GrowingFileInputStream download) {
+        static final Source NETWORK = new Source(null, null);
+    }
+
+    /**
+     * @return The download {@code grabber} reads while it is still arriving, or null if it reads a
+     *         cached file or the network directly
+     */
+    JitterBuffer.Input downloadInput(FFmpegFrameGrabber grabber) {
+        return readers.get(grabber);
+    }
+
+    /**
+     * Create an unstarted grabber for {@code url}: from the cache on a hit, reading a download in
+     * progress on a miss, or straight from the network if the response can't be downloaded.
+     * Blocking (one request to the server) - call off the render thread.
+     */
+    FFmpegFrameGrabber createGrabber(String url) {
+        Source source = resolve(url);
+        if (source.file() != null) {
+            return new FFmpegFrameGrabber(source.file().toString());
+        }
+        if (source.download() != null) {
+            FFmpegFrameGrabber grabber = new FFmpegFrameGrabber(source.download(), Integer.MAX_VALUE);
+            readers.put(grabber, source.download());
+            return grabber;
+        }
+        return new FFmpegFrameGrabber(url);
+    }
+
+    /**
+     * Find or start what {@link #createGrabber(String)} reads {@code url} from. Only https is
+     * kept, and only while the cache is enabled; anything else downloads to a temporary file.
+     * Blocking (one request to the server).
+     */
+    Source resolve(String url) {
+        boolean cacheable = maxBytes > 0 && url.startsWith(cachedScheme);
+        Entry cached = null;
+        if (cacheable) {
+            synchronized (this) {
+                cached = index.get(url);
+                if (cached != null && !Files.exists(blob(cached.hash))) {
+                    index.remove(url);
+                    cached = null;
+                }
+            }
+
+            if (cached != null && cached.etag == null && cached.lastModified == null) {
+                return hit(url, cached); // nothing to revalidate against
+            }
+
+            Download running = inFlight.get(url);
+            if (running != null) {
+                hits.incrementAndGet();
+                EntsVideoPlayer.LOGGER.info("Video cache: joining download in progress for {}", url);
+                return running.open();
+            }
+        }
+
+        HttpURLConnection conn = null;
+        try {
+            conn = (HttpURLConnection) URI.create(url).toURL().openConnection();
+            conn.setRequestProperty("User-Agent", "Minecraft-Fabric-Mod");
+            conn.setConnectTimeout(CONNECT_TIMEOUT_MS);
+            conn.setReadTimeout(READ_TIMEOUT_MS);
+            if (cached != null) {
+                if (cached.etag != null) conn.setRequestProperty("If-None-Match", cached.etag);
+                if (cached.lastModified != null) conn.setRequestProperty("If-Modified-Since", cached.lastModified);
+            }
+
+            int status = conn.getResponseCode();
+            if (cached != null && status == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                conn.disconnect();
+                return hit(url, cached);
+            }
+            if (cacheable) misses.incrementAndGet();
+            if (status != HttpURLConnection.HTTP_OK || !isDownloadableResponse(conn)) {
+                conn.disconnect();
+                return Source.NETWORK;
+            }
+
+            boolean keep = cacheable && conn.getContentLengthLong() <= maxBytes / 2;
+            Download download = new Download(url, conn, keep);
+            // Open the reader first, so a small file can't be committed (moved) before it is read
+            Source source = download.open();
+            if (keep) inFlight.put(url, download);
+            download.start();
+            if (keep) {
+                logStats(url, "miss, caching");
+            } else {
+                EntsVideoPlayer.LOGGER.info("Video buffer: downloading {} to a temporary file ({} MB, not cached)",
+                        url, download.size >> 20);
+            }
+            return source;
+        } catch (IOException e) {
+            if (conn != null) conn.disconnect();
+            if (cached != null) {
+                // Offline or server unreachable: the cached copy is better than nothing
+                return hit(url, cached);
+            }
+            EntsVideoPlayer.LOGGER.warn("Video cache: {} can't be downloaded ({}), streaming directly", url, e.getMessage());
+            return Source.NETWORK;
+        }
+    }
+
+    /**
+     * @return The complete cached copy of {@code url} without revalidating it, or null if there is none
+     */
+    synchronized Path cachedFile(String url) {
+        Entry cached = index.get(url);
+        if (cached == null) return null;
+        Path file = blob(cached.hash);
+        return Files.exists(file) ? file : null;
+    }
+
+    private Source hit(String url, Entry cached) {
+        synchronized (this) {
+            index.put(url, cached.touch());
+            saveIndex();
+        }
+        hits.incrementAndGet();
+        bytesSaved.addAndGet(cached.size);
+        logStats(url, "hit");
+        return new Source(blob(cached.hash), null);
+    }
+
+    /**
+     * @return true for a complete file of known length, which can be read while it downloads
+     */
+    private static boolean isDownloadableResponse(HttpURLConnection conn) {
+        long length = conn.getContentLengthLong();
+        if (length <= 0) return false;
+        String type = conn.getContentType();
+        if (type == null) return true;
+        type = type.toLowerCase(Locale.ROOT);
+        return !type.contains("mpegurl") && !type.contains("dash+xml");
+    }
+
+    /**
+     * Download thread: the content is complete and hashed, make it a cache entry.
+     */
+    private synchronized void commit(Download download, String hash) throws IOException {
+        Path target = blob(hash);
+        if (Files.exists(target)) {
+            Files.delete(download.part); // same content already cached under another URL
+        } else {
+            Files.move(download.part, target, StandardCopyOption.ATOMIC_MOVE);
+        }
+        download.location = target;
+        index.put(download.url, new Entry(hash, download.written, System.currentTimeMillis(),
+                download.etag, download.lastModified));
+        evictToCap();
+        saveIndex();
+    }
+
+    private void evictToCap() {
+        Map<String, Long> blobSizes = new HashMap<>();
+        for (Entry entry : index.values()) {
+            blobSizes.put(entry.hash, entry.size);
+        }
+        long total = blobSizes.values().stream().mapToLong(Long::longValue).sum();
+        if (total <= maxBytes) return;
+
+        List<Map.Entry<String, Entry>> byAge = new ArrayList<>(index.entrySet());
+        byAge.sort(Comparator.comparingLong(e -> e.getValue().lastAccess));
+        for (Map.Entry<String, Entry> oldest : byAge) {
+            if (total <= maxBytes) break;
+            index.remove(oldest.getKey());
+            String hash = oldest.getValue().hash;
+            if (index.values().stream().noneMatch(e -> e.hash.equals(hash))) {
+                total -= oldest.getValue().size;
+                try {
+                    Files.deleteIfExists(blob(hash));
+                    Files.deleteIfExists(KeyframeIndex.indexFile(blob(hash)));
+                } catch (IOException e) {
+                    EntsVideoPlayer.LOGGER.debug("Could not delete cached {} (still playing?)", hash);
+                }
+                EntsVideoPlayer.LOGGER.info("Video cache: evicted {} ({} MB)", oldest.getKey(), oldest.getValue().size >> 20);
+            }
+        }
+    }
+
+    private Path blob(String hash) {
+        return dir.resolve(hash + ".bin");
+    }
+
+    private void loadIndex() throws IOException {
+        // Leftovers from downloads that never finished
+        try (DirectoryStream<Path> parts = Files.newDirectoryStream(dir, "*.part")) {
+            for (Path part : parts) {
+                Files.deleteIfExists(part);
+            }
+        }
+
+        Path file = dir.resolve(INDEX_FILE);
+        if (!Files.exists(file)) return;
+        try (BufferedReader reader = Files.newBufferedReader(file)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] f = line.split("\t", -1);
+                if (f.length != 6 || !Files.exists(blob(f[1]))) continue;
+                try {
+                    index.put(f[0], new Entry(f[1], Long.parseLong(f[2]), Long.parseLong(f[3]),
+                            f[4].isEmpty() ? null : f[4], f[5].isEmpty() ? null : f[5]));
+                } catch (NumberFormatException e) {
+                    EntsVideoPlayer.LOGGER.warn("Skipping invalid video cache entry: {}", line);
+                }
+            }
+        }
+        EntsVideoPlayer.LOGGER.info("Video cache: {} entries in {}", index.size(), dir);
+    }
+
+    private void saveIndex() {
+        Path file = dir.resolve(INDEX_FILE);
+        Path tmp = dir.resolve(INDEX_FILE + ".tmp");
+        try {
+            try (BufferedWriter writer = Files.newBufferedWriter(tmp)) {
+                for (Map.Entry<String, Entry> e : index.entrySet()) {
+                    Entry entry = e.getValue();
+                    writer.write(e.getKey() + "\t" + entry.hash + "\t" + entry.size + "\t" + entry.lastAccess + "\t"
+                            + (entry.etag != null ? entry.etag : "") + "\t"
+                            + (entry.lastModified != null ? entry.lastModified : ""));
+                    writer.newLine();
+                }
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            EntsVideoPlayer.LOGGER.warn("Failed to write video cache index", e);
+        }
+    }
+
+    private void logStats(String url, String result) {
+        long h = hits.get();
+        long total = h + misses.get();
+        EntsVideoPlayer.LOGGER.info("Video cache {} for {} (hit rate {}/{}, {} MB saved this session)",
+                result, url, h, total, bytesSaved.get() >> 20);
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * @return Bytes served from disk instead of the network this session
+     */
+    public long getBytesSaved() {
+        return bytesSaved.get();
+    }
+
+    /**
+     * A download that playback may read while it is still being written: into the cache, or into a
+     * temporary file that goes away with its reader.
+     */
+    private final class Download {
+        final String url;
+        final Path part;
+        // Where the content is now: the part file, then the cache blob once committed
+        volatile Path location;
+        final long size;
+        final String etag;
+        final String lastModified;
+        // Becomes a cache entry; otherwise the file is deleted once the reader is done with it
+        final boolean keep;
+        private final HttpURLConnection conn;
+        private final FileChannel out;
+
+        volatile long written = 0L;
+        volatile boolean finished = false;
+        volatile boolean failed = false;
+        // The (only) reader of a temporary download has closed it
+        private volatile boolean released = false;
+
+        Download(String url, HttpURLConnection conn, boolean keep) throws IOException {
+            this.url = url;
+            this.conn = conn;
+            this.keep = keep;
+            this.size = conn.getContentLengthLong();
+            this.etag = conn.getHeaderField("ETag");
+            this.lastModified = conn.getHeaderField("Last-Modified");
+            // Unique per download; concurrent downloads of one URL end up as the same content-addressed file
+            this.part = dir.resolve(HexFormat.of().formatHex(sha256(url.getBytes())).substring(0, 16)
+                    + "-" + System.nanoTime() + ".part");
+            this.location = part;
+            // Created before any reader opens it
+            this.out = FileChannel.open(part, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+        }
+
+        void start() {
+            downloader.execute(this::run);
+        }
+
+        private void run() {
+            long startNanos = System.nanoTime();
+            try {
+                MessageDigest digest = keep ? MessageDigest.getInstance("SHA-256") : null;
+                try (InputStream in = conn.getInputStream(); FileChannel channel = out) {
+                    byte[] buffer = new byte[COPY_BUFFER_SIZE];
+                    int read;
+                    // A temporary download stops as soon as nobody reads it any more
+                    while (!released && (read = in.read(buffer)) != -1) {
+                        ByteBuffer chunk = ByteBuffer.wrap(buffer, 0, read);
+                        while (chunk.hasRemaining()) {
+                            channel.write(chunk);
+                        }
+                        if (digest != null) digest.update(buffer, 0, read);
+                        written += read; // publish to readers
+                    }
+                }
+                if (released) return;
+                if (written != size) {
+                    throw new IOException("Download ended after " + written + " of " + size + " bytes");
+                }
+                if (digest == null) {
+                    EntsVideoPlayer.LOGGER.info("Video buffer: downloaded {} ({} MB in {} ms)", url, written >> 20,
+                            (System.nanoTime() - startNanos) / 1_000_000L);
+                    return;
+                }
+                commit(this, HexFormat.of().formatHex(digest.digest()));
+                EntsVideoPlayer.LOGGER.info("Video cache: stored {} ({} MB in {} ms)", url, written >> 20,
+                        (System.nanoTime() - startNanos) / 1_000_000L);
+            } catch (IOException | NoSuchAlgorithmException e) {
+                failed = true;
+                EntsVideoPlayer.LOGGER.warn("Video cache: download of {} failed", url, e);
+                if (keep) {
+                    try {
+                        Files.deleteIfExists(part);
+                    } catch (IOException ignored) {
+                    }
+                }
+            } finally {
+                finished = true;
+                inFlight.remove(url, this);
+                conn.disconnect();
+                deleteIfUnused();
+            }
+        }
+
+        Source open() {
+            try {
+                return new Source(null, new GrowingFileInputStream(this));
+            } catch (IOException e) {
+                EntsVideoPlayer.LOGGER.warn("Video cache: can't read download of {}, streaming directly", url, e);
+                return Source.NETWORK;
+            }
+        }
+
+        /**
+         * The reader closed. A temporary download stops and its file goes once nothing uses it.
+         * Cache downloads are shared and keep going.
+         */
+        void release() {
+            if (keep) return;
+            released = true;
+            deleteIfUnused();
+        }
+
+        private synchronized void deleteIfUnused() {
+            if (keep || !released || !finished) return;
+            try {
+                Files.deleteIfExists(part);
+            } catch (IOException e) {
+                EntsVideoPlayer.LOGGER.debug("Could not delete temporary download {}", part);
+            }
+        }
+
+        /**
+         * Wait until at least {@code end} bytes are on disk or the download stopped.
+         *
+         * @return Bytes available to read
+         */
+        long awaitBytes(long end) throws IOException {
+            while (written < end && !finished) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new InterruptedIOException("Interrupted waiting for " + url);
+                }
+                LockSupport.parkNanos(WAIT_PARK_NANOS);
+            }
+            if (failed) throw new IOException("Download of " + url + " failed");
+            return written;
+        }
+    }
+
+    /**
+     * Reads a file that is still being downloaded, blocking until the requested bytes arrive.
+     * Seeks (mark/reset plus skip, as JavaCV issues them) just move the read position.
+     */
+    static final class GrowingFileInputStream extends InputStream implements JitterBuffer.Input {
+        private final Download download;
+        private final FileChannel channel;
+        private volatile long position = 0L;
+
+        GrowingFileInputStream(Download download) throws IOException {
+            this.download = download;
+            this.channel = open(download);
+        }
+
+        private static FileChannel open(Download download) throws IOException {
+            try {
+                return FileChannel.open(download.location, StandardOpenOption.READ);
+            } catch (NoSuchFileException e) {
+                // Committed to the cache between reading the location and opening it
+                return FileChannel.open(download.location, StandardOpenOption.READ);
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) == 1 ? one[0] & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) return 0;
+            long available = download.awaitBytes(position + 1);
+            if (available <= position) return -1;
+            int n = channel.read(ByteBuffer.wrap(b, off, (int) Math.min(len, available - position)), position);
+            if (n > 0) position += n;
+            return n;
+        }
+
+        @Override
+        public long skip(long n) {
+            long target = Math.min(position + Math.max(n, 0L), download.size);
+            long skipped = target - position;
+            position = target;
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            return (int) Math.min(Math.max(download.written - position, 0L), Integer.MAX_VALUE);
+        }
+
+        @Override
+        public boolean markSupported() {
+            return true;
+        }
+
+        @Override
+        public long bytesAhead() {
+            return Math.max(download.written - position, 0L);
+        }
+
+        @Override
+        public long totalBytes() {
+            return Math.max(download.size, 0L);
+        }
+
+        @Override
+        public boolean isComplete() {
+            return download.finished && !download.failed;
+        }
+
+        /**
+         * The mark is always the start of the file (JavaCV marks once, before reading).
+         */
+        @Override
+        public synchronized void mark(int readLimit) {
+        }
+
+        @Override
+        public synchronized void reset() {
+            position = 0L;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+            download.release();
+        }
+    }
+
+    private static byte[] sha256(byte[] data) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(data);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,983 @@
+package net.entsvideoplayer.client;
+
+import net.entsvideoplayer.EntsVideoPlayer;
+
+import org.bytedeco.ffmpeg.avcodec.AVCodecContext;
+import org.bytedeco.ffmpeg.avutil.AVFrame;
+import org.bytedeco.javacv.FFmpegFrameGrabber;
+import org.bytedeco.javacv.Frame;
+import org.bytedeco.javacv.FrameGrabber;
+import org.lwjgl.system.MemoryUtil;
+
+import javax.sound.sampled.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.bytedeco.ffmpeg.global.avcodec.AVDISCARD_DEFAULT;
+import static org.bytedeco.ffmpeg.global.avcodec.AVDISCARD_NONREF;
+import static org.bytedeco.ffmpeg.global.avutil.AV_SAMPLE_FMT_S16;
+import static org.bytedeco.ffmpeg.global.avutil.av_frame_clone;
+import static org.bytedeco.ffmpeg.global.avutil.av_frame_free;
+
+/**
+ * Playback as a graph of independent stages connected by bounded queues:
+ * <pre>
+ *   demux/decode ──(decoded AVFrames)──▶ convert ──(RGBA RawFrames)──▶ render thread
+ *        └──────────(PCM ring)─────────▶ audio output
+ * </pre>
+ * Each stage runs on its own thread at its own rate; a slow audio write no longer stalls video
+ * decoding and vice versa. FFmpegFrameGrabber reads and decodes in the same grab() call, so demux
+ * and decode share the first stage.
+ */
+public class VideoPipeline implements CutscenePlayback {
+    // Frames in flight: 4 queued + 1 on screen + 1 being filled by the converter
+    private static final int FRAME_POOL_SIZE = 6;
+    private static final int DECODED_QUEUE_SIZE = 4;
+    private static final int CONVERTED_QUEUE_SIZE = 4;
+    // Every source is resampled to this rate so the audio path never depends on the input
+    static final int AUDIO_SAMPLE_RATE = 48_000;
+    // ~0.7s of audio between the decoder and the audio writer
+    private static final int AUDIO_RING_FRAMES = AUDIO_SAMPLE_RATE * 7 / 10;
+    // Largest single write to the line, ~20ms, so the writer notices shutdown quickly
+    private static final int AUDIO_WRITE_FRAMES = AUDIO_SAMPLE_RATE / 50;
+    // How often the buffer thread measures a network source's jitter buffer
+    private static final long BUFFER_CHECK_NANOS = 20_000_000L;
+    // Never drop more than this many late frames in a row, so a slow decoder still shows something
+    private static final int MAX_CONSECUTIVE_DROPS = 5;
+    // A network read FFmpeg does itself gives up after this long, so a stage stuck on a stalled
+    // connection still exits when it is stopped
+    private static final long NETWORK_READ_TIMEOUT_US = 5_000_000L;
+    // How long to wait for a stopped stage between interrupts (and before warning about it)
+    private static final long STAGE_STOP_WAIT_MS = 1000L;
+
+    // RGBA, matching NativeImage.Format.RGBA
+    static final int BYTES_PER_PIXEL = 4;
+    private static final long NO_SEEK = -1L;
+
+    private final String source;
+    private final FFmpegFrameGrabber grabber;
+    private final int videoWidth;
+    private final int videoHeight;
+    private final long frameDurationUs;
+
+    // Size the convert stage scales to, packed as (width << 32 | height) so both change together
+    private volatile long targetSize;
+    // Size last asked for by setTargetSize, before the quality controller scales it down
+    private volatile long requestedSize;
+    private final QualityController quality;
+    // Network sources only: holds playback until enough is buffered
+    private final JitterBuffer jitter;
+    private final FramePool framePool;
+    private SourceDataLine audioLine;
+    private AudioRingBuffer audioRing;
+    private volatile PresentationClock clock;
+    // Loop mode: keeps a copy of every converted frame and all audio of the first pass
+    private volatile LoopStore recorder;
+    private final AtomicLong droppedFrames = new AtomicLong();
+
+    // Bigger than the defaults when the jitter buffer has to be held entirely in decoded media
+    private final int decodedQueueSize;
+    private final int audioRingFrames;
+    private final BlockingQueue<DecodedFrame> decodedQueue;
+    private final FrameRing frameRing;
+
+    // Threads of the current run; every seek replaces it
+    private volatile Stages stages = new Stages();
+    // Waits for a seek's old stages to exit and starts the new ones, off the render thread
+    private ExecutorService seeker;
+    private boolean closed = false;
+
+    private volatile boolean firstVideoFrameSeen = false;
+    private volatile long seekStartNanos;
+    // First and latest video timestamps decoded since the last (re)start, for the jitter buffer
+    private volatile long firstDecodedUs = PresentationClock.NOT_STARTED;
+    private volatile long lastDecodedUs = PresentationClock.NOT_STARTED;
+    // Playlist: the audio line was handed to the next entry, so close() leaves it (and its writer) running
+    private volatile boolean keepAudioLine = false;
+    // Playlist: the line this entry took over from the previous one, until its writer has finished
+    private volatile AudioHandoff handoff;
+    // Video frames per second of time spent inside grab(), i.e. excluding waits on full queues
+    private volatile double decodeFps = 0.0;
+    // Time spent in swscale, for the per-frame CPU cost logged on close
+    private volatile long convertedFrames = 0L;
+    private volatile long convertNanos = 0L;
+
+    // Frames the convert stage skipped at the half frame rate quality level
+    private final AtomicLong halfRateSkips = new AtomicLong();
+
+    // Decode thread only: whether the decoder is currently told to skip non-reference frames
+    private boolean skippingNonRef = false;
+    // Decode thread only: byte view over the grabber's sample buffer, rebuilt only when it moves
+    private ByteBuffer sampleView;
+    private long sampleViewAddress;
+
+    /**
+     * Open and probe {@code source} with the grabber configured by {@link #createGrabber(String, boolean)}.
+     * Blocking - call off the render thread.
+     */
+    public static VideoPipeline open(String source) throws FrameGrabber.Exception {
+        // Live streams can't be held back, so the renderer just gets the newest frame
+        boolean live = source.startsWith("rtmp://");
+        FFmpegFrameGrabber grabber = createGrabber(source, live);
+        try {
+            grabber.start();
+        } catch (FrameGrabber.Exception e) {
+            grabber.release();
+            throw e;
+        }
+        DecoderThreading.remember(source, grabber);
+        if (!live) {
+            KeyframeIndex.forSource(source); // index seekable files in the background for later seeks
+        }
+        return new VideoPipeline(source, grabber, live);
+    }
+
+    /**
+     * Create an unstarted grabber for {@code source}, configured the way the pipeline expects:
+     * video left in the decoder's native format for the convert stage, audio as packed,
+     * interleaved S16 at {@link #AUDIO_SAMPLE_RATE}.
+     */
+    static FFmpegFrameGrabber createGrabber(String source, boolean live) throws FrameGrabber.Exception {
+        FFmpegNativeLoader.loadLibraries(); // the first video pays for loading them, and logs it
+        FFmpegFrameGrabber grabber;
+        if (PackVideoSource.isPackUri(source)) {
+            grabber = PackVideoSource.createGrabber(source);
+        } else if (VideoCache.isBufferable(source)) {
+            grabber = VideoCache.get().createGrabber(source);
+        } else {
+            grabber = new FFmpegFrameGrabber(source);
+        }
+        if (source.contains("://") && !PackVideoSource.isPackUri(source)) {
+            // Only applies when FFmpeg opens the url itself (not a download or cached file)
+            grabber.setOption("rw_timeout", Long.toString(NETWORK_READ_TIMEOUT_US));
+        }
+        DecoderThreading.choose(source, live).apply(grabber);
+        int liveBufferMs = CutsceneConfig.get().jitterLiveMs;
+        if (source.startsWith("rtmp://") && liveBufferMs > 0) {
+            // Ask the server for no more client-side buffer than the low-latency target
+            grabber.setOption("rtmp_buffer", Integer.toString(liveBufferMs));
+            grabber.setOption("rtmp_live", "live");
+        }
+
+        // Leave frames in the decoder's native format; the convert stage turns them into RGBA
+        grabber.setImageMode(FrameGrabber.ImageMode.RAW);
+
+        // Packed S16 means frame.samples[0] already holds line-ready interleaved PCM
+        grabber.setSampleMode(FrameGrabber.SampleMode.SHORT);
+        grabber.setSampleFormat(AV_SAMPLE_FMT_S16);
+        grabber.setSampleRate(AUDIO_SAMPLE_RATE);
+        return grabber;
+    }
+
+    /**
+     * @param source What {@code grabber} was opened from, to find its keyframe index
+     * @param grabber An already started grabber, configured as in {@link #open(String)}
+     */
+    VideoPipeline(String source, FFmpegFrameGrabber grabber, boolean latestFrameWins) {
+        this.source = source;
+        this.grabber = grabber;
+        this.videoWidth = grabber.getImageWidth();
+        this.videoHeight = grabber.getImageHeight();
+
+        double fps = grabber.getFrameRate();
+        if (fps <= 0 || Double.isNaN(fps) || Double.isInfinite(fps)) {
+            fps = 30.0; // fallback
+        }
+        this.frameDurationUs = (long) (1_000_000.0 / fps);
+        // RGBA rows are written tightly packed, so stride = width * 4
+        this.framePool = new FramePool(FRAME_POOL_SIZE, videoWidth * BYTES_PER_PIXEL * videoHeight);
+        CutsceneConfig config = CutsceneConfig.get();
+        this.quality = new QualityController(config.maxQualityDrop, frameDurationUs, CONVERTED_QUEUE_SIZE);
+        setTargetSize(Math.min(videoWidth, config.maxDecodeWidth), Math.min(videoHeight, config.maxDecodeHeight));
+        this.frameRing = new FrameRing(CONVERTED_QUEUE_SIZE, latestFrameWins, framePool::release);
+        this.jitter = JitterBuffer.forSource(source, grabber);
+
+        if (jitter != null && !jitter.hasInput()) {
+            // Nothing downloads ahead of FFmpeg, so the whole target has to fit in the queues
+            long targetUs = jitter.getTargetUs();
+            this.decodedQueueSize = (int) Math.max(DECODED_QUEUE_SIZE, (targetUs + frameDurationUs - 1) / frameDurationUs + 1);
+            this.audioRingFrames = (int) (AUDIO_RING_FRAMES + targetUs * AUDIO_SAMPLE_RATE / 1_000_000L);
+            EntsVideoPlayer.LOGGER.info("Jitter buffer: {} ms target held in {} decoded frames", targetUs / 1000L, decodedQueueSize);
+        } else {
+            this.decodedQueueSize = DECODED_QUEUE_SIZE;
+            this.audioRingFrames = AUDIO_RING_FRAMES;
+        }
+        this.decodedQueue = new ArrayBlockingQueue<>(decodedQueueSize);
+    }
+
+    /**
+     * Open the audio line and start the decode and convert stages without starting playback.
+     * Frames and audio pre-roll until the queues are full, then the stages wait for {@link #start()}.
+     * Does nothing if already prepared.
+     */
+    @Override
+    public synchronized void prepare() {
+        if (clock != null) return;
+
+        if (grabber.getAudioChannels() > 0) {
+            try {
+                AudioFormat audioFormat = new AudioFormat(
+                        (float) AUDIO_SAMPLE_RATE,
+                        16,
+                        grabber.getAudioChannels(),
+                        true,
+                        ByteOrder.nativeOrder() == ByteOrder.BIG_ENDIAN // FFmpeg S16 is native-endian
+                );
+                DataLine.Info info = new DataLine.Info(SourceDataLine.class, audioFormat);
+                audioLine = (SourceDataLine) AudioSystem.getLine(info);
+                audioLine.open(audioFormat);
+                audioRing = new AudioRingBuffer(audioFormat.getFrameSize(), audioRingFrames);
+                EntsVideoPlayer.LOGGER.info("Audio initialized: {} channels @ {} Hz",
+                        grabber.getAudioChannels(), AUDIO_SAMPLE_RATE);
+            } catch (Exception e) {
+                EntsVideoPlayer.LOGGER.error("Failed to initialize audio", e);
+                audioLine = null;
+            }
+        }
+
+        clock = new PresentationClock(audioLine);
+        launch(stages);
+    }
+
+    /**
+     * Start playback: prepares the pipeline if needed, then starts the audio output, which also
+     * starts the presentation clock. Decoding begins in {@link #prepare()}, so frames are already
+     * queued before the renderer asks for them.
+     */
+    @Override
+    public synchronized void start() {
+        prepare();
+        Stages run = stages;
+        run.playing = true;
+        // Right after a seek the output starts together with the new run's other stages
+        if (run.launched) startOutput(run);
+    }
+
+    /**
+     * Start the decode and convert stages of {@code run}, and its output if playback has started.
+     */
+    private void launch(Stages run) {
+        run.decodeThread = startStage(() -> runDecode(run), "Cutscene-Decode-Thread");
+        run.convertThread = startStage(() -> runConvert(run), "Cutscene-Convert-Thread");
+        run.launched = true;
+        if (run.playing) startOutput(run);
+    }
+
+    private void startOutput(Stages run) {
+        boolean buffered = jitter == null || jitter.isPlaying();
+        if (audioLine != null && run.audioThread == null) {
+            // A handed-over line is already running; an unbuffered one is started by the buffer thread
+            if (handoff == null && buffered) audioLine.start();
+            run.audioThread = startStage(() -> runAudio(run), "Cutscene-Audio-Thread");
+        }
+        if (jitter != null && run.bufferThread == null) {
+            if (!buffered) clock.pause();
+            run.bufferThread = startStage(() -> runBuffer(run), "Cutscene-Buffer-Thread");
+        }
+    }
+
+    @Override
+    public synchronized AudioHandoff detachAudio() {
+        Thread writer = stages.audioThread;
+        if (audioLine == null || writer == null) return null;
+        keepAudioLine = true;
+        return new AudioHandoff(audioLine, writer);
+    }
+
+    @Override
+    public synchronized void attachAudio(AudioHandoff previous) {
+        if (previous == null) return;
+        prepare();
+        if (audioLine == null || stages.audioThread != null || !previous.matches(audioLine.getFormat())) {
+            previous.close();
+            return;
+        }
+        audioLine.close(); // our own line was only opened for pre-roll, never started
+        audioLine = previous.line();
+        handoff = previous;
+        // Refined by the audio stage once the previous writer is done
+        clock = clock.withLine(audioLine, audioLine.getLongFramePosition() + previous.queuedFrames());
+    }
+
+    private static Thread startStage(Runnable stage, String name) {
+        Thread thread = new Thread(stage, name);
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    /**
+     * Stage 1: demux + decode. Never sleeps; only blocks when a downstream queue is full.
+     */
+    private void runDecode(Stages run) {
+        int frameCount = 0;
+        int videoFrames = 0;
+        long grabNanos = 0L;
+        int skippedFrames = 0;
+        try {
+            long skipUntilUs = run.seekUs != NO_SEEK ? seekTo(run.seekUs) : NO_SEEK;
+
+            while (run.running) {
+                boolean skipNonRef = quality.level().skipNonRef;
+                if (skipNonRef != skippingNonRef) {
+                    applySkipNonRef(skipNonRef);
+                }
+
+                long grabStart = System.nanoTime();
+                Frame frame = grabber.grab();
+                long grabTime = System.nanoTime() - grabStart;
+                grabNanos += grabTime;
+                if (frame == null) break;
+                frameCount++;
+
+                // After a seek: decode forward from the keyframe, but pass nothing on until the target
+                if (skipUntilUs != NO_SEEK) {
+                    if (frame.timestamp < skipUntilUs) {
+                        skippedFrames++;
+                        continue;
+                    }
+                    EntsVideoPlayer.LOGGER.info("Seek to {} ms: {} frames decoded and skipped, {} ms",
+                            skipUntilUs / 1000L, skippedFrames, (System.nanoTime() - seekStartNanos) / 1_000_000L);
+                    skipUntilUs = NO_SEEK;
+                }
+
+                // Video: hand a new reference to the decoded picture to the convert stage.
+                // The clone shares the decoder's buffers, so nothing is copied here.
+                if (frame.image != null && frame.opaque instanceof AVFrame picture) {
+                    quality.onDecoded(grabTime);
+                    if (firstDecodedUs == PresentationClock.NOT_STARTED) firstDecodedUs = frame.timestamp;
+                    lastDecodedUs = frame.timestamp;
+                    AVFrame ref = av_frame_clone(picture);
+                    if (ref != null) {
+                        decodedQueue.put(new DecodedFrame(ref, frame.timestamp));
+                        firstVideoFrameSeen = true;
+                        videoFrames++;
+                        if (grabNanos > 0) decodeFps = videoFrames * 1e9 / grabNanos;
+                    }
+                }
+
+                // Audio: bulk-copy the interleaved PCM into the ring for the audio output stage
+                if (firstVideoFrameSeen && frame.samples != null && audioRing != null) {
+                    clock.onAudioStart(frame.timestamp);
+                    LoopStore store = recorder;
+                    if (store != null) store.onAudioStart(frame.timestamp);
+                    if (!writeSamples((ShortBuffer) frame.samples[0])) {
+                        break; // interrupted while the ring was full
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            // A read interrupted by stopping the run isn't an error
+            if (run.running) EntsVideoPlayer.LOGGER.error("Error decoding video", e);
+        } finally {
+            run.decodeFinished = true;
+            EntsVideoPlayer.LOGGER.info("Decode finished. Processed {} frames, decoding at {} fps ({} fps stream, {})",
+                    frameCount, String.format("%.1f", decodeFps), String.format("%.1f", grabber.getFrameRate()),
+                    grabber.getVideoCodecName());
+        }
+    }
+
+    /**
+     * Decode thread: position the grabber at the keyframe at or before {@code targetUs}.
+     *
+     * @return The time to skip forward to, or {@link #NO_SEEK} if the seek failed
+     */
+    private long seekTo(long targetUs) {
+        KeyframeIndex index = KeyframeIndex.forSource(source);
+        // Without an index, the grabber finds the keyframe through the container and decodes forward itself
+        long fromUs = index != null ? index.floorUs(targetUs) : targetUs;
+        try {
+            grabber.setTimestamp(fromUs);
+        } catch (FrameGrabber.Exception e) {
+            EntsVideoPlayer.LOGGER.warn("Failed to seek to {} ms", targetUs / 1000L, e);
+            return NO_SEEK;
+        }
+        EntsVideoPlayer.LOGGER.debug("Seeking to {} ms from keyframe at {} ms ({})", targetUs / 1000L, fromUs / 1000L,
+                index != null ? index.size() + " indexed keyframes" : "no index yet");
+        return targetUs;
+    }
+
+    /**
+     * Decode thread: switch the decoder's skip-frame setting. Takes effect from the next packet.
+     */
+    private void applySkipNonRef(boolean skip) {
+        skippingNonRef = skip;
+        AVCodecContext codec = grabber.getVideoCodecContext();
+        if (codec != null) {
+            codec.skip_frame(skip ? AVDISCARD_NONREF : AVDISCARD_DEFAULT);
+        }
+    }
+
+    /**
+     * Stage 2: pixel conversion into pooled RGBA frames for the render thread.
+     * Frames the presentation clock has already passed are dropped here, before any conversion or upload.
+     */
+    private void runConvert(Stages run) {
+        int consecutiveDrops = 0;
+        long frameIndex = 0L;
+        try (FrameConverter converter = new FrameConverter()) {
+            while (run.running) {
+                DecodedFrame decoded = decodedQueue.poll(10, TimeUnit.MILLISECONDS);
+                if (decoded == null) {
+                    if (run.decodeFinished && decodedQueue.isEmpty()) break;
+                    continue;
+                }
+
+                // A recorded first pass with a missing or degraded frame would repeat it every loop
+                LoopStore store = recorder;
+                if (isLate(decoded.timestampUs) && consecutiveDrops < MAX_CONSECUTIVE_DROPS) {
+                    av_frame_free(decoded.picture);
+                    droppedFrames.incrementAndGet();
+                    quality.onDropped();
+                    consecutiveDrops++;
+                    if (store != null) store.abandon("dropped late frames in its first pass");
+                    continue;
+                }
+                consecutiveDrops = 0;
+
+                QualityController.Level level = quality.level();
+                if (level.halfRate && (frameIndex++ & 1L) == 1L) {
+                    av_frame_free(decoded.picture);
+                    halfRateSkips.incrementAndGet();
+                    if (store != null) store.abandon("was decoded at half frame rate");
+                    continue;
+                }
+                if (store != null && level != QualityController.Level.FULL) {
+                    store.abandon("was decoded at reduced quality (" + level + ")");
+                }
+
+                RawFrame raw = null;
+                long convertTime;
+                try {
+                    // swscale scales to the on-screen size as part of the conversion
+                    long size = targetSize;
+                    int width = (int) (size >>> 32);
+                    int height = (int) size;
+                    raw = framePool.acquire(width, height, width * BYTES_PER_PIXEL);
+                    raw.timestampUs = decoded.timestampUs;
+                    long convertStart = System.nanoTime();
+                    converter.convert(decoded.picture, raw);
+                    convertTime = System.nanoTime() - convertStart;
+                    convertNanos += convertTime; // convert thread only
+                    convertedFrames++;
+                    if (store != null) store.addFrame(raw);
+                } finally {
+                    av_frame_free(decoded.picture);
+                }
+
+                if (!frameRing.put(raw)) { // waits if full (backpressure), unless latest-frame-wins
+                    framePool.release(raw);
+                    break;
+                }
+                quality.onConverted(convertTime, frameRing.size());
+                if (quality.evaluate()) {
+                    applyTargetSize();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            EntsVideoPlayer.LOGGER.error("Error converting video", e);
+        } finally {
+            run.convertFinished = true;
+            EntsVideoPlayer.LOGGER.info("Convert finished (frame pool: {} hits, {} misses, {} late frames dropped)",
+                    framePool.getHits(), framePool.getMisses(), droppedFrames.get());
+        }
+    }
+
+    /**
+     * Decode thread: copy one frame of packed S16 samples into the audio ring without allocating.
+     */
+    private boolean writeSamples(ShortBuffer samples) {
+        long address = MemoryUtil.memAddress(samples);
+        int bytes = samples.remaining() * Short.BYTES;
+
+        // The grabber reuses its sample buffer between frames, so the view is normally reused too
+        if (sampleView == null || sampleViewAddress != address || sampleView.capacity() < bytes) {
+            sampleView = MemoryUtil.memByteBuffer(address, bytes);
+            sampleViewAddress = address;
+        }
+        LoopStore store = recorder;
+        if (store != null) store.addAudio(sampleView, bytes);
+        return audioRing.write(sampleView, 0, bytes);
+    }
+
+    /**
+     * Stage 3: audio output. The blocking line write paces this thread by the audio device alone.
+     */
+    private void runAudio(Stages run) {
+        int maxWrite = AUDIO_WRITE_FRAMES * audioLine.getFormat().getFrameSize();
+        try {
+            AudioHandoff previous = handoff;
+            if (previous != null) {
+                // Our first sample goes right after the previous entry's last one
+                previous.awaitWriter();
+                clock = clock.withLine(audioLine, audioLine.getLongFramePosition() + previous.queuedFrames());
+                handoff = null;
+            }
+            // A detached line keeps being fed until the ring is empty, even after close()
+            while (run.running || keepAudioLine) {
+                if (audioRing.drainTo(audioLine, maxWrite) == 0) {
+                    if (run.decodeFinished && audioRing.isEmpty()) break;
+                    LockSupport.parkNanos(1_000_000L);
+                }
+            }
+            // Let the tail play out before handing the clock back to the wall clock
+            if (run.running && !keepAudioLine) audioLine.drain();
+        } catch (Exception e) {
+            EntsVideoPlayer.LOGGER.error("Error playing audio", e);
+        } finally {
+            clock.onAudioEnd();
+        }
+    }
+
+    /**
+     * Stage 4, network sources only: measure the jitter buffer and pause or resume playback.
+     */
+    private void runBuffer(Stages run) {
+        jitter.restart();
+        while (run.running) {
+            long last = lastDecodedUs;
+            long now = clock.nowUs();
+            long aheadUs = 0L;
+            if (last != PresentationClock.NOT_STARTED) {
+                // Before the clock starts, everything decoded so far is ahead of it
+                aheadUs = last - (now != PresentationClock.NOT_STARTED ? now : firstDecodedUs);
+            }
+            if (jitter.update(aheadUs, run.decodeFinished)) {
+                setBuffering(run, !jitter.isPlaying());
+            }
+            LockSupport.parkNanos(BUFFER_CHECK_NANOS);
+        }
+    }
+
+    /**
+     * Buffer thread: hold or continue playback. Stopping the line stops the audio clock with it.
+     */
+    private void setBuffering(Stages run, boolean buffering) {
+        SourceDataLine line = run.audioThread != null ? audioLine : null;
+        if (buffering) {
+            clock.pause();
+            if (line != null) line.stop();
+        } else {
+            if (line != null) line.start();
+            clock.resume();
+        }
+    }
+
+    private boolean isLate(long timestampUs) {
+        long now = clock.nowUs();
+        return now != PresentationClock.NOT_STARTED && timestampUs < now - frameDurationUs;
+    }
+
+    /**
+     * Render thread: next converted frame, or null if none is ready. Return it with
+     * {@link #releaseFrame(RawFrame)} once a newer frame replaces it.
+     */
+    @Override
+    public RawFrame pollFrame() {
+        // Until a seek's new run starts, the ring may still hold frames from before the seek
+        if (!stages.launched) return null;
+        return frameRing.poll();
+    }
+
+    /**
+     * Render thread: look at the next converted frame without taking it.
+     */
+    @Override
+    public RawFrame peekFrame() {
+        if (!stages.launched) return null;
+        return frameRing.peek();
+    }
+
+    /**
+     * Render thread: current presentation time in stream microseconds. Anchors the wall clock
+     * to {@code firstFramePtsUs} if neither audio nor a previous frame has started it.
+     */
+    @Override
+    public long clockUs(long firstFramePtsUs) {
+        long now = clock.nowUs();
+        if (now == PresentationClock.NOT_STARTED) {
+            clock.startIfNeeded(firstFramePtsUs);
+            now = clock.nowUs();
+        }
+        return now;
+    }
+
+    /**
+     * @return Approximate native and heap memory held by queued frames, the frame pool and the audio ring
+     */
+    @Override
+    public long getBufferedBytes() {
+        long rgba = (long) videoWidth * videoHeight * BYTES_PER_PIXEL;
+        // Decoded pictures are typically YUV 4:2:0, 1.5 bytes per pixel
+        long decoded = (long) videoWidth * videoHeight * 3 / 2;
+        long audio = (long) audioRingFrames * Math.max(grabber.getAudioChannels(), 0) * Short.BYTES;
+        return FRAME_POOL_SIZE * rgba + decodedQueueSize * decoded + audio;
+    }
+
+    /**
+     * @return Frames dropped because they were already late when they reached the convert stage
+     */
+    public long getDroppedFrames() {
+        return droppedFrames.get();
+    }
+
+    /**
+     * @return Decoder throughput in video frames per second, not counting time blocked on the convert stage
+     */
+    public double getDecodeFps() {
+        return decodeFps;
+    }
+
+    /**
+     * @return Audio device clock minus wall clock, in milliseconds (0 without audio)
+     */
+    public long getDriftMs() {
+        return clock != null ? clock.getDriftUs() / 1000L : 0L;
+    }
+
+    @Override
+    public void releaseFrame(RawFrame frame) {
+        framePool.release(frame);
+    }
+
+    /**
+     * @return true once every frame has been decoded, converted and handed to the renderer
+     */
+    @Override
+    public boolean isFinished() {
+        return stages.convertFinished && frameRing.isEmpty();
+    }
+
+    @Override
+    public int getVideoWidth() {
+        return videoWidth;
+    }
+
+    @Override
+    public int getVideoHeight() {
+        return videoHeight;
+    }
+
+    /**
+     * Re-target the decode size, typically to the video's on-screen size in framebuffer pixels.
+     * Keeps the source aspect ratio, never upscales and never exceeds the configured maximum.
+     * Takes effect from the next converted frame.
+     */
+    @Override
+    public void setTargetSize(int width, int height) {
+        requestedSize = ((long) width << 32) | height;
+        applyTargetSize();
+    }
+
+    /**
+     * Recompute the decode size from the requested size and the current quality level.
+     */
+    private void applyTargetSize() {
+        long requested = requestedSize;
+        double scale = quality.level().scale;
+        int width = (int) Math.round((int) (requested >>> 32) * scale);
+        int height = (int) Math.round((int) requested * scale);
+        long size = fitTargetSize(videoWidth, videoHeight, width, height);
+        if (size != targetSize) {
+            targetSize = size;
+            EntsVideoPlayer.LOGGER.debug("Decode target {}x{} (source {}x{})", (int) (size >>> 32), (int) size, videoWidth, videoHeight);
+        }
+    }
+
+    /**
+     * @return The decode size for a {@code videoWidth} x {@code videoHeight} source shown at
+     *         {@code width} x {@code height}, packed as (width << 32 | height): same aspect ratio,
+     *         never upscaled, within the configured maximum
+     */
+    static long fitTargetSize(int videoWidth, int videoHeight, int width, int height) {
+        CutsceneConfig config = CutsceneConfig.get();
+        double scale = Math.max((double) width / videoWidth, (double) height / videoHeight);
+        scale = Math.min(scale, 1.0);
+        scale = Math.min(scale, Math.min((double) config.maxDecodeWidth / videoWidth, (double) config.maxDecodeHeight / videoHeight));
+
+        // Even dimensions keep chroma-subsampled sources happy in swscale
+        int w = Math.max(2, (int) Math.round(videoWidth * scale) & ~1);
+        int h = Math.max(2, (int) Math.round(videoHeight * scale) & ~1);
+        return ((long) w << 32) | h;
+    }
+
+    @Override
+    public int getTargetWidth() {
+        return (int) (targetSize >>> 32);
+    }
+
+    @Override
+    public int getTargetHeight() {
+        return (int) targetSize;
+    }
+
+    /**
+     * Record the first pass into {@code store} for loop playback. Only possible before
+     * {@link #prepare()}, since pre-rolled frames would otherwise be missing.
+     *
+     * @return false if the pipeline is already running
+     */
+    synchronized boolean record(LoopStore store) {
+        if (clock != null) return false;
+        recorder = store;
+        return true;
+    }
+
+    /**
+     * Stop recording; the store stays with the caller.
+     */
+    void stopRecording() {
+        recorder = null;
+    }
+
+    /**
+     * Seek back to the start and play again, keeping the grabber, audio line and frame pool.
+     */
+    @Override
+    public boolean rewind() {
+        return seek(0L);
+    }
+
+    /**
+     * Jump to {@code timestampUs}. The stages restart and the decode stage seeks to the nearest
+     * keyframe at or before it, then decodes forward without converting or playing anything until
+     * the target, so the cost is bounded by one keyframe interval. Before {@link #prepare()} this
+     * only sets where playback will begin.
+     * <p>
+     * Returns right away: the old stages are stopped and the new ones started on a seek thread,
+     * once every old one has really exited. No frames are handed out in between.
+     */
+    @Override
+    public boolean seek(long timestampUs) {
+        return seek(timestampUs, null);
+    }
+
+    /**
+     * As {@link #seek(long)}.
+     * @param onStopped Run on the seek thread once the stages that were running have exited (to
+     *                  free what they were writing into), or null
+     */
+    synchronized boolean seek(long timestampUs, Runnable onStopped) {
+        seekStartNanos = System.nanoTime();
+        long target = Math.max(timestampUs, 0L);
+        if (clock == null || closed) {
+            stages.seekUs = target;
+            if (onStopped != null) onStopped.run();
+            return true;
+        }
+
+        Stages previous = stages;
+        Stages next = new Stages();
+        next.seekUs = target;
+        next.playing = previous.playing;
+        stages = next;
+        previous.running = false;
+        if (seeker == null) {
+            seeker = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "Cutscene-Seek-Thread");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        seeker.execute(() -> restart(previous, next, onStopped));
+        return true;
+    }
+
+    /**
+     * Seek thread: wait until every stage of {@code previous} has exited, then start {@code next}
+     * from a clean state, unless a later seek or {@link #close()} replaced it meanwhile.
+     */
+    private void restart(Stages previous, Stages next, Runnable onStopped) {
+        awaitExit(previous);
+        if (onStopped != null) onStopped.run();
+        synchronized (this) {
+            if (closed || stages != next) return;
+            clearQueues();
+            if (audioLine != null) {
+                // A network source refills before continuing from the new position
+                if (jitter != null) audioLine.stop();
+                audioLine.flush();
+            }
+            firstVideoFrameSeen = false;
+            firstDecodedUs = PresentationClock.NOT_STARTED;
+            lastDecodedUs = PresentationClock.NOT_STARTED;
+            clock = new PresentationClock(audioLine, audioLine != null ? audioLine.getLongFramePosition() : 0L);
+            if (jitter != null) jitter.restart();
+            launch(next);
+        }
+    }
+
+    /**
+     * Stop {@code run} and wait until its threads have really exited: one still inside grab() would
+     * share the native decoder with whatever runs next. Network reads time out after
+     * {@link #NETWORK_READ_TIMEOUT_US} and cached downloads are interruptible, so this doesn't hang.
+     */
+    private void awaitExit(Stages run) {
+        run.running = false;
+        // A detached line's writer finishes the ring on its own
+        Thread[] threads = keepAudioLine
+                ? new Thread[]{run.decodeThread, run.convertThread, run.bufferThread}
+                : new Thread[]{run.decodeThread, run.convertThread, run.audioThread, run.bufferThread};
+        boolean interrupted = false;
+        for (Thread thread : threads) {
+            long startNanos = System.nanoTime();
+            boolean warned = false;
+            while (thread != null && thread.isAlive()) {
+                thread.interrupt();
+                // A writer blocked on a full, stopped line only returns once the line is flushed
+                if (thread == run.audioThread) audioLine.flush();
+                try {
+                    thread.join(STAGE_STOP_WAIT_MS);
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+                if (!warned && thread.isAlive()) {
+                    warned = true;
+                    EntsVideoPlayer.LOGGER.warn("{} still running after {} ms, waiting for it to exit", thread.getName(),
+                            (System.nanoTime() - startNanos) / 1_000_000L);
+                }
+            }
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+    }
+
+    /**
+     * @return true for palette-based sources (GIF), whose frames can be stored as 8-bit indices
+     */
+    boolean isPaletteSource() {
+        return "gif".equals(grabber.getVideoCodecName());
+    }
+
+    /**
+     * @return Stream duration in microseconds, 0 if unknown (live streams)
+     */
+    public long getLengthUs() {
+        return Math.max(grabber.getLengthInTime(), 0L);
+    }
+
+    @Override
+    public double getFrameRate() {
+        return grabber.getFrameRate();
+    }
+
+    @Override
+    public int getAudioChannels() {
+        return grabber.getAudioChannels();
+    }
+
+    /**
+     * @return Output sample rate (always {@link #AUDIO_SAMPLE_RATE} when the stream has audio)
+     */
+    @Override
+    public int getSampleRate() {
+        return grabber.getSampleRate();
+    }
+
+    /**
+     * Stop all stages and release the grabber and audio line. Blocks until every stage has exited
+     * (a stalled network read takes up to {@link #NETWORK_READ_TIMEOUT_US}) and the line has
+     * drained: not for the render thread.
+     */
+    @Override
+    public void close() {
+        Stages run;
+        ExecutorService pendingSeeks;
+        synchronized (this) {
+            closed = true;
+            run = stages;
+            run.running = false;
+            pendingSeeks = seeker;
+        }
+
+        EntsVideoPlayer.LOGGER.info("Playback stats: {} late frames dropped, A/V drift {} ms, quality {} ({} frames skipped at half rate)",
+                getDroppedFrames(), getDriftMs(), quality.level(), halfRateSkips.get());
+        EntsVideoPlayer.LOGGER.info("Frame handoff: avg {} us, max {} us, {} producer waits, {} evictions",
+                frameRing.getAverageHandoffLatencyUs(), frameRing.getMaxHandoffLatencyUs(),
+                frameRing.getProducerWaits(), frameRing.getEvictions());
+        long decodeUs = decodeFps > 0 ? (long) (1_000_000.0 / decodeFps) : 0L;
+        long convertUs = convertedFrames > 0 ? convertNanos / convertedFrames / 1000L : 0L;
+        EntsVideoPlayer.LOGGER.info("CPU per frame: {} us (decode {} us + convert {} us, FFmpeg path)",
+                decodeUs + convertUs, decodeUs, convertUs);
+        if (jitter != null) {
+            jitter.logStats();
+        }
+
+        // A seek in progress may still be waiting for older stages; they all exit before the grabber goes
+        if (pendingSeeks != null) {
+            pendingSeeks.shutdown();
+            boolean interrupted = false;
+            while (!pendingSeeks.isTerminated()) {
+                try {
+                    pendingSeeks.awaitTermination(STAGE_STOP_WAIT_MS, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) Thread.currentThread().interrupt();
+        }
+        awaitExit(run);
+
+        try {
+            grabber.stop();
+            grabber.release();
+        } catch (Exception e) {
+            EntsVideoPlayer.LOGGER.error("Error stopping grabber", e);
+        }
+
+        if (audioLine != null && !keepAudioLine) {
+            audioLine.drain();
+            audioLine.stop();
+            audioLine.close();
+        }
+
+        clearQueues();
+    }
+
+    private void clearQueues() {
+        DecodedFrame pending;
+        while ((pending = decodedQueue.poll()) != null) {
+            av_frame_free(pending.picture);
+        }
+        frameRing.clear(framePool::release);
+        if (audioRing != null && !keepAudioLine) {
+            audioRing.clear();
+        }
+    }
+
+    /**
+     * A reference to a decoded picture still in the decoder's native pixel format.
+     */
+    private record DecodedFrame(AVFrame picture, long timestampUs) {}
+
+    /**
+     * One run of the stage threads, from {@link #prepare()} or a seek until the next seek or close.
+     * Each thread only watches its own run, so one that outlives a seek can't carry on into the next.
+     */
+    private static final class Stages {
+        volatile boolean running = true;
+        volatile boolean decodeFinished = false;
+        volatile boolean convertFinished = false;
+        // Threads started (after the previous run's have all exited)
+        volatile boolean launched = false;
+        // Position the decode stage jumps to before its first grab, or NO_SEEK
+        volatile long seekUs = NO_SEEK;
+        // Guarded by the pipeline: start() was called, so the output stages run too
+        boolean playing = false;
+        Thread decodeThread;
+        Thread convertThread;
+        Thread audioThread;
+        Thread bufferThread;
+    }
+}
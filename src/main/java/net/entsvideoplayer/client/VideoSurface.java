@@ -0,0 +1,350 @@
+package net.entsvideoplayer.client;
+
+import net.entsvideoplayer.EntsVideoPlayer;
+import net.minecraft.util.Identifier;
+
+import org.bytedeco.ffmpeg.avutil.AVFrame;
+import org.bytedeco.javacv.FFmpegFrameGrabber;
+import org.bytedeco.javacv.Frame;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A video drawn somewhere other than the cutscene screen: an in-world screen, a billboard, a HUD
+ * picture-in-picture. Any number can play at once. They have no threads of their own; the shared
+ * {@link DecodeScheduler} decodes them, and only as much as they are seen.
+ * <p>
+ * Call {@link #update(int, int)} every frame the surface is drawn, with the area it covers on
+ * screen in pixels, and draw the texture it returns. A surface that stops being drawn is culled:
+ * after a moment it only decodes keyframes, after a few seconds it stops decoding, and when it is
+ * drawn again it jumps to where playback would be. Surfaces are silent.
+ */
+public final class VideoSurface implements AutoCloseable {
+    enum Mode { FULL, KEYFRAMES, PAUSED }
+
+    // Not drawn for this long: culled, keyframes only
+    private static final long CULLED_AFTER_NANOS = 250_000_000L;
+    // Not drawn for this long: no decoding at all
+    private static final long PAUSED_AFTER_NANOS = 2_000_000_000L;
+    // Smaller than this on screen, every frame isn't worth decoding (a 160x90 thumbnail)
+    private static final int MIN_FULL_RATE_PIXELS = 160 * 90;
+    // Back in view this far behind the clock: seek rather than decode forward
+    private static final long CATCH_UP_SEEK_US = 1_000_000L;
+    private static final int QUEUED_FRAMES = 2;
+    // Queued + on screen + being converted
+    private static final int POOL_FRAMES = QUEUED_FRAMES + 2;
+
+    private static final AtomicInteger nextId = new AtomicInteger();
+
+    private final String source;
+    private final boolean loop;
+    private final VideoTexture texture;
+    private final PresentationClock clock = new PresentationClock(null);
+    // Held by the worker decoding this surface, so only one does at a time
+    private final AtomicBoolean claimed = new AtomicBoolean();
+
+    // Set by open(); the grabber is published last
+    private volatile FFmpegFrameGrabber grabber;
+    private FrameConverter converter;
+    private FramePool framePool;
+    private FrameRing frameRing;
+    private int videoWidth, videoHeight;
+    private long frameDurationUs;
+    private long lengthUs;
+
+    private volatile boolean closed = false;
+    private volatile boolean ended = false;
+    private volatile long targetSize;
+    private volatile long lastDrawnNanos = System.nanoTime();
+    // Full rate until the first draw says otherwise, so the first frame shows up quickly
+    private volatile int onScreenPixels = Integer.MAX_VALUE;
+    private volatile long lastStepNanos = 0L;
+
+    // Decode worker only (one at a time)
+    private Mode lastMode = Mode.FULL;
+    private long loopOffsetUs = 0L;
+    private long lastDecodedUs = PresentationClock.NOT_STARTED;
+    private long decodeNanos = 0L;
+    private long decodedFrames = 0L;
+    private long droppedFrames = 0L;
+    private long keyframeOnlyFrames = 0L;
+
+    // Render thread only
+    private RawFrame lastFrame;
+
+    private VideoSurface(String source, boolean loop) {
+        this.source = source;
+        this.loop = loop;
+        this.texture = new VideoTexture(Identifier.of(EntsVideoPlayer.MOD_ID, "surface/" + nextId.getAndIncrement()));
+    }
+
+    /**
+     * Start opening {@code source} in the background. The surface shows nothing until its first
+     * frame is decoded.
+     * @param source A path or URL FFmpeg can open
+     * @param loop Start over at the end instead of holding the last frame
+     */
+    public static VideoSurface open(String source, boolean loop) {
+        VideoSurface surface = new VideoSurface(source, loop);
+        DecodeScheduler.get().add(surface);
+        return surface;
+    }
+
+    /**
+     * Render thread: the surface is being drawn this frame at {@code onScreenWidth} x
+     * {@code onScreenHeight} pixels. Uploads the frame that is due, if it changed.
+     * @return The texture to draw, or null until the first frame is ready
+     */
+    public Identifier update(int onScreenWidth, int onScreenHeight) {
+        long now = System.nanoTime();
+        boolean wasCulled = now - lastDrawnNanos > CULLED_AFTER_NANOS;
+        lastDrawnNanos = now;
+        onScreenPixels = Math.max(0, onScreenWidth) * Math.max(0, onScreenHeight);
+        if (closed || grabber == null) return null;
+
+        targetSize = VideoPipeline.fitTargetSize(videoWidth, videoHeight, Math.max(2, onScreenWidth), Math.max(2, onScreenHeight));
+
+        RawFrame newest = null;
+        RawFrame next;
+        long clockUs = clock.nowUs();
+        while ((next = frameRing.peek()) != null && next.timestampUs <= clockUs + frameDurationUs / 2) {
+            framePool.release(newest);
+            newest = frameRing.poll();
+        }
+        if (newest != null) {
+            framePool.release(lastFrame);
+            lastFrame = newest;
+            if (!texture.exists()) {
+                texture.create(newest.width, newest.height);
+            }
+            texture.upload(newest);
+        }
+        if (newest != null || wasCulled) {
+            DecodeScheduler.get().wake();
+        }
+        return texture.exists() ? texture.getId() : null;
+    }
+
+    /**
+     * @return The texture frames are uploaded to, or null until the first frame is ready
+     */
+    public Identifier getTextureId() {
+        return texture.exists() ? texture.getId() : null;
+    }
+
+    /**
+     * @return True once a non-looping surface has decoded its last frame, or failed to open
+     */
+    public boolean hasEnded() {
+        return ended;
+    }
+
+    /**
+     * Render thread: stop decoding and free the texture and native resources.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) return;
+            closed = true;
+        }
+        DecodeScheduler.get().remove(this);
+        // A worker may be in the middle of a frame; it finishes within one decode
+        while (grabber != null && !tryClaim()) {
+            LockSupport.parkNanos(1_000_000L);
+        }
+        releaseDecoder();
+        framePool = null;
+        lastFrame = null;
+        texture.close();
+    }
+
+    /**
+     * Open thread: start the grabber.
+     * @return False if the source failed to open or the surface was closed meanwhile
+     */
+    boolean open() {
+        if (!FFmpegBootstrap.awaitReady()) {
+            ended = true;
+            return false;
+        }
+
+        FFmpegFrameGrabber opened;
+        try {
+            opened = VideoPipeline.createGrabber(source, false);
+            // The scheduler's workers are the parallelism; a stream gets one decoder thread
+            opened.setVideoOption("threads", "1");
+            opened.start();
+        } catch (Exception e) {
+            EntsVideoPlayer.LOGGER.error("Failed to open video surface {}", source, e);
+            ended = true;
+            return false;
+        }
+
+        videoWidth = opened.getImageWidth();
+        videoHeight = opened.getImageHeight();
+        double fps = opened.getFrameRate();
+        if (fps <= 0 || Double.isNaN(fps) || Double.isInfinite(fps)) {
+            fps = 30.0; // fallback
+        }
+        frameDurationUs = (long) (1_000_000.0 / fps);
+        lengthUs = opened.getLengthInTime();
+        CutsceneConfig config = CutsceneConfig.get();
+        targetSize = VideoPipeline.fitTargetSize(videoWidth, videoHeight,
+                Math.min(videoWidth, config.maxDecodeWidth), Math.min(videoHeight, config.maxDecodeHeight));
+        framePool = new FramePool(POOL_FRAMES, videoWidth * VideoPipeline.BYTES_PER_PIXEL * videoHeight);
+        frameRing = new FrameRing(QUEUED_FRAMES, false, framePool::release);
+        converter = new FrameConverter();
+        KeyframeIndex.forSource(source); // for catching up after being culled
+
+        synchronized (this) {
+            if (closed) {
+                converter.close();
+                releaseGrabber(opened);
+                return false;
+            }
+            grabber = opened;
+        }
+        clock.startIfNeeded(0L);
+        EntsVideoPlayer.LOGGER.info("Video surface {} opened: {}x{} @ {} fps", texture.getId(), videoWidth, videoHeight, fps);
+        return true;
+    }
+
+    boolean tryClaim() {
+        return claimed.compareAndSet(false, true);
+    }
+
+    void release() {
+        claimed.set(false);
+    }
+
+    boolean isClosed() {
+        return closed;
+    }
+
+    long lastStepNanos() {
+        return lastStepNanos;
+    }
+
+    Mode mode(long now) {
+        long sinceDrawn = now - lastDrawnNanos;
+        if (sinceDrawn > PAUSED_AFTER_NANOS) return Mode.PAUSED;
+        if (sinceDrawn > CULLED_AFTER_NANOS || onScreenPixels < MIN_FULL_RATE_PIXELS) return Mode.KEYFRAMES;
+        return Mode.FULL;
+    }
+
+    /**
+     * @return How much the player sees of this surface: its on-screen area while drawn, 0 when culled
+     */
+    long priority(long now) {
+        return now - lastDrawnNanos > CULLED_AFTER_NANOS ? 0L : onScreenPixels;
+    }
+
+    /**
+     * @return True if a worker should decode a frame for this surface now
+     */
+    boolean wantsWork(long now) {
+        return grabber != null && !closed && !ended && !claimed.get()
+                && mode(now) != Mode.PAUSED && !frameRing.isFull();
+    }
+
+    /**
+     * Decode worker: decode (and convert, unless it is already late) one frame.
+     */
+    void step() {
+        long now = System.nanoTime();
+        lastStepNanos = now;
+        if (closed) return;
+
+        Mode mode = mode(now);
+        long clockUs = clock.nowUs();
+        try {
+            // Back in view and well behind: jump to where playback is instead of decoding the gap
+            if (mode == Mode.FULL && lastDecodedUs != PresentationClock.NOT_STARTED
+                    && lastMode != Mode.FULL && clockUs - lastDecodedUs > CATCH_UP_SEEK_US) {
+                catchUp(clockUs);
+            }
+            lastMode = mode;
+
+            long start = System.nanoTime();
+            Frame frame = mode == Mode.FULL ? grabber.grabImage() : grabber.grabKeyFrame();
+            decodeNanos += System.nanoTime() - start;
+            if (frame == null) {
+                if (loop && lastDecodedUs != PresentationClock.NOT_STARTED) {
+                    // Keep the timeline going: the next pass starts one frame after this one ended
+                    loopOffsetUs = lastDecodedUs + frameDurationUs;
+                    grabber.setTimestamp(0L);
+                } else {
+                    ended = true;
+                }
+                return;
+            }
+            if (!(frame.opaque instanceof AVFrame picture)) return;
+
+            long timestampUs = frame.timestamp + loopOffsetUs;
+            lastDecodedUs = timestampUs;
+            decodedFrames++;
+            if (mode == Mode.KEYFRAMES) {
+                keyframeOnlyFrames++;
+            } else if (timestampUs < clockUs - frameDurationUs) {
+                // Late: never shown, so not worth converting
+                droppedFrames++;
+                return;
+            }
+
+            long size = targetSize;
+            int width = (int) (size >>> 32);
+            int height = (int) size;
+            RawFrame raw = framePool.acquire(width, height, width * VideoPipeline.BYTES_PER_PIXEL);
+            raw.timestampUs = timestampUs;
+            converter.convert(picture, raw);
+            if (!frameRing.put(raw)) {
+                framePool.release(raw);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            EntsVideoPlayer.LOGGER.error("Error decoding video surface {}", source, e);
+            ended = true;
+        }
+    }
+
+    /**
+     * Decode worker: seek to {@code clockUs} on the surface's timeline, from the nearest keyframe.
+     */
+    private void catchUp(long clockUs) throws Exception {
+        long positionUs = clockUs - loopOffsetUs;
+        if (loop && lengthUs > 0L && positionUs >= lengthUs) {
+            // Passes missed while culled
+            long passes = positionUs / lengthUs;
+            loopOffsetUs += passes * lengthUs;
+            positionUs -= passes * lengthUs;
+        }
+        KeyframeIndex index = KeyframeIndex.forSource(source);
+        long fromUs = index != null ? index.floorUs(positionUs) : positionUs;
+        grabber.setTimestamp(fromUs);
+        EntsVideoPlayer.LOGGER.debug("Video surface {} caught up {} ms", texture.getId(), (clockUs - lastDecodedUs) / 1000L);
+    }
+
+    private void releaseDecoder() {
+        FFmpegFrameGrabber opened = grabber;
+        if (opened == null) return;
+        EntsVideoPlayer.LOGGER.info("Video surface {} closed: {} frames decoded ({} us each), {} late frames dropped, {} keyframe-only",
+                texture.getId(), decodedFrames, decodedFrames > 0 ? decodeNanos / decodedFrames / 1000L : 0L,
+                droppedFrames, keyframeOnlyFrames);
+        converter.close();
+        releaseGrabber(opened);
+        grabber = null;
+    }
+
+    private static void releaseGrabber(FFmpegFrameGrabber grabber) {
+        try {
+            grabber.stop();
+            grabber.release();
+        } catch (Exception e) {
+            EntsVideoPlayer.LOGGER.warn("Error closing video surface grabber", e);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package net.entsvideoplayer.client;
+
+import net.entsvideoplayer.EntsVideoPlayer;
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.client.texture.NativeImage;
+import net.minecraft.client.texture.NativeImageBackedTexture;
+import net.minecraft.util.Identifier;
+
+import org.lwjgl.system.MemoryUtil;
+
+/**
+ * A registered texture that RGBA frames are copied into, recreated whenever the frame size
+ * changes. Render thread only.
+ */
+final class VideoTexture {
+    private static final int BYTES_PER_PIXEL = VideoPipeline.BYTES_PER_PIXEL;
+
+    private final Identifier id;
+    private NativeImageBackedTexture texture;
+
+    VideoTexture(Identifier id) {
+        this.id = id;
+    }
+
+    Identifier getId() {
+        return id;
+    }
+
+    boolean exists() {
+        return texture != null;
+    }
+
+    int getWidth() {
+        NativeImage image = texture != null ? texture.getImage() : null;
+        return image != null ? image.getWidth() : 0;
+    }
+
+    int getHeight() {
+        NativeImage image = texture != null ? texture.getImage() : null;
+        return image != null ? image.getHeight() : 0;
+    }
+
+    /**
+     * Create the texture (replacing any previous one) at the given size, cleared to black.
+     */
+    void create(int width, int height) {
+        allocate(width, height);
+        NativeImage nativeImage = texture.getImage();
+        if (nativeImage != null) {
+            nativeImage.fillRect(0, 0, width, height, 0xFF000000); // Black with full alpha
+            texture.upload();
+        }
+    }
+
+    /**
+     * Create the texture at the given size without clearing or uploading it, for a frame that is
+     * about to overwrite all of it.
+     */
+    private void allocate(int width, int height) {
+        if (texture != null) {
+            MinecraftClient.getInstance().getTextureManager().destroyTexture(id);
+            texture.close();
+        }
+
+        texture = new NativeImageBackedTexture(id::toString, width, height, false);
+        MinecraftClient.getInstance().getTextureManager().registerTexture(id, texture);
+    }
+
+    /**
+     * Copy a decoded RGBA frame into the texture and upload it.
+     */
+    void upload(RawFrame frame) {
+        if (frame == null || texture == null) return;
+
+        try {
+            NativeImage nativeImage = texture.getImage();
+            if (nativeImage == null) return;
+
+            if (nativeImage.getWidth() != frame.width || nativeImage.getHeight() != frame.height) {
+                // Decode size was re-targeted; the copy below fills the whole new image
+                allocate(frame.width, frame.height);
+                nativeImage = texture.getImage();
+                if (nativeImage == null) return;
+            }
+
+            long dst = nativeImage.imageId();
+            if (dst == 0L) return; // image already closed
+
+            int w = Math.min(frame.width, nativeImage.getWidth());
+            int h = Math.min(frame.height, nativeImage.getHeight());
+            int stride = frame.stride;
+            if (stride < w * BYTES_PER_PIXEL) {
+                // Defensive: if stride is unexpectedly small, treat rows as tightly packed
+                stride = w * BYTES_PER_PIXEL;
+            }
+            h = Math.min(h, frame.buffer.limit() / stride);
+
+            long src = MemoryUtil.memAddress(frame.buffer, 0);
+            int dstStride = nativeImage.getWidth() * BYTES_PER_PIXEL;
+            int rowBytes = w * BYTES_PER_PIXEL;
+
+            if (stride == dstStride && rowBytes == dstStride) {
+                // Same layout on both sides: the whole frame is a single memcpy
+                MemoryUtil.memCopy(src, dst, (long) stride * h);
+            } else {
+                for (int y = 0; y < h; y++) {
+                    MemoryUtil.memCopy(src + (long) y * stride, dst + (long) y * dstStride, rowBytes);
+                }
+            }
+
+            texture.upload();
+        } catch (Exception e) {
+            EntsVideoPlayer.LOGGER.error("Error updating texture", e);
+        }
+    }
+
+    void close() {
+        if (texture != null) {
+            MinecraftClient.getInstance().getTextureManager().destroyTexture(id);
+            texture.close();
+            texture = null;
+        }
+    }
+}
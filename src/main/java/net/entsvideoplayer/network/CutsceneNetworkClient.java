@@ -1,9 +1,15 @@
 package net.entsvideoplayer.network;
 
 import java.io.FileNotFoundException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 
+import net.entsvideoplayer.EntsVideoPlayer;
 import net.entsvideoplayer.api.CutsceneManager;
+import net.entsvideoplayer.client.FFmpegBootstrap;
 import net.fabricmc.fabric.api.client.networking.v1.ClientPlayNetworking;
+import net.minecraft.client.MinecraftClient;
 
 public class CutsceneNetworkClient {
 
@@ -12,15 +18,34 @@ public class CutsceneNetworkClient {
             PlayCutscenePayload.ID,
             (packet, context) -> {
                 var client = context.client();
-                client.execute(() -> {
-                    try {
-                        CutsceneManager.playCutscene(packet.videoPath(), packet.type(), packet.disableMovement(), packet.hideHud());
-                    } catch (FileNotFoundException e) {
-                        System.err.println("Failed to load resource video: " + e.getMessage());
-                        e.printStackTrace();
-                    }
-                });
+                // Only URLs hit a shared server; local and pack files play right away
+                if (packet.spreadMs() > 0 && packet.type() == 0) {
+                    long delayMs = ThreadLocalRandom.current().nextLong(packet.spreadMs());
+                    EntsVideoPlayer.LOGGER.info("Cutscene broadcast: fetching in {} ms (spread {} ms)", delayMs, packet.spreadMs());
+                    // Get FFmpeg ready meanwhile, so the fetch is the only thing left when the delay ends
+                    client.execute(FFmpegBootstrap::start);
+                    CompletableFuture.runAsync(() -> play(packet),
+                        CompletableFuture.delayedExecutor(delayMs, TimeUnit.MILLISECONDS, client::execute));
+                    return;
+                }
+                client.execute(() -> play(packet));
             }
         );
+
+        ClientPlayNetworking.registerGlobalReceiver(
+            PlayPlaylistPayload.ID,
+            (packet, context) -> context.client().execute(() ->
+                CutsceneManager.playPlaylist(packet.videoPaths(), packet.type(), packet.disableMovement(), packet.hideHud()))
+        );
+    }
+
+    private static void play(PlayCutscenePayload packet) {
+        if (MinecraftClient.getInstance().player == null) return; // disconnected while waiting
+        try {
+            CutsceneManager.playCutscene(packet.videoPath(), packet.type(), packet.disableMovement(), packet.hideHud(), packet.loop(), packet.startMs());
+        } catch (FileNotFoundException e) {
+            System.err.println("Failed to load resource video: " + e.getMessage());
+            e.printStackTrace();
+        }
     }
 }
@@ -1,14 +1,55 @@
 package net.entsvideoplayer.network;
 
+import java.util.Collection;
+import java.util.List;
+
+import net.entsvideoplayer.EntsVideoPlayer;
 import net.fabricmc.fabric.api.networking.v1.ServerPlayNetworking;
+import net.minecraft.network.listener.ClientCommonPacketListener;
+import net.minecraft.network.packet.Packet;
 import net.minecraft.server.network.ServerPlayerEntity;
 
 public class CutsceneNetworkServer {
 
     public static void sendCutscene(ServerPlayerEntity player, String videoPath, int type, boolean disableMovement, boolean hideHud) {
-        PlayCutscenePayload packet = new PlayCutscenePayload(videoPath, type, disableMovement, hideHud);
+        sendCutscene(player, videoPath, type, disableMovement, hideHud, false);
+    }
+
+    public static void sendCutscene(ServerPlayerEntity player, String videoPath, int type, boolean disableMovement, boolean hideHud, boolean loop) {
+        sendCutscene(player, videoPath, type, disableMovement, hideHud, loop, 0L);
+    }
+
+    public static void sendCutscene(ServerPlayerEntity player, String videoPath, int type, boolean disableMovement, boolean hideHud, boolean loop, long startMs) {
+        PlayCutscenePayload packet = new PlayCutscenePayload(videoPath, type, disableMovement, hideHud, loop, startMs);
 
         // Send via the CustomPayload API
         ServerPlayNetworking.send(player, packet);
     }
+
+    /**
+     * Send one cutscene to many players: the payload and its packet object are built once and the
+     * same packet is queued for every player. Each connection still serializes it on its own, so
+     * this saves allocations, not encoding. Players without the mod are skipped.
+     * @param spreadMs For URL videos, clients start fetching at a random time within this window
+     * @return How many players it was sent to
+     */
+    public static int broadcastCutscene(Collection<ServerPlayerEntity> players, String videoPath, int type, boolean disableMovement, boolean hideHud, boolean loop, int spreadMs) {
+        long startNanos = System.nanoTime();
+        PlayCutscenePayload payload = new PlayCutscenePayload(videoPath, type, disableMovement, hideHud, loop, 0L, Math.max(spreadMs, 0));
+        Packet<ClientCommonPacketListener> packet = ServerPlayNetworking.createS2CPacket(payload);
+
+        int sent = 0;
+        for (ServerPlayerEntity player : players) {
+            if (!ServerPlayNetworking.canSend(player, PlayCutscenePayload.ID)) continue;
+            player.networkHandler.sendPacket(packet);
+            sent++;
+        }
+        EntsVideoPlayer.LOGGER.info("Cutscene broadcast to {}/{} player(s) in {} us (spread {} ms): {}",
+                sent, players.size(), (System.nanoTime() - startNanos) / 1000L, payload.spreadMs(), videoPath);
+        return sent;
+    }
+
+    public static void sendPlaylist(ServerPlayerEntity player, List<String> videoPaths, int type, boolean disableMovement, boolean hideHud) {
+        ServerPlayNetworking.send(player, new PlayPlaylistPayload(videoPaths, type, disableMovement, hideHud));
+    }
 }
\ No newline at end of file
@@ -7,7 +7,11 @@ import net.minecraft.network.codec.PacketCodecs;
 import net.minecraft.network.packet.CustomPayload;
 import net.minecraft.util.Identifier;
 
-public record PlayCutscenePayload(String videoPath, int type, boolean disableMovement, boolean hideHud) implements CustomPayload {
+/**
+ * @param spreadMs For URL videos sent to many players at once: each client waits a random time up
+ *                 to this long before fetching, so they don't all hit the server in the same instant
+ */
+public record PlayCutscenePayload(String videoPath, int type, boolean disableMovement, boolean hideHud, boolean loop, long startMs, int spreadMs) implements CustomPayload {
     public static final CustomPayload.Id<PlayCutscenePayload> ID =
         new CustomPayload.Id<>(Identifier.of(EntsVideoPlayer.MOD_ID, "play_cutscene"));
     
@@ -17,9 +21,16 @@ public record PlayCutscenePayload(String videoPath, int type, boolean disableMov
             PacketCodecs.INTEGER, PlayCutscenePayload::type,
             PacketCodecs.BOOLEAN, PlayCutscenePayload::disableMovement,
             PacketCodecs.BOOLEAN, PlayCutscenePayload::hideHud,
+            PacketCodecs.BOOLEAN, PlayCutscenePayload::loop,
+            PacketCodecs.VAR_LONG, PlayCutscenePayload::startMs,
+            PacketCodecs.VAR_INT, PlayCutscenePayload::spreadMs,
             PlayCutscenePayload::new
         );
 
+    public PlayCutscenePayload(String videoPath, int type, boolean disableMovement, boolean hideHud, boolean loop, long startMs) {
+        this(videoPath, type, disableMovement, hideHud, loop, startMs, 0);
+    }
+
     @Override
     public CustomPayload.Id<? extends CustomPayload> getId() {
         return ID;
@@ -0,0 +1,29 @@
+package net.entsvideoplayer.network;
+
+import java.util.List;
+
+import net.entsvideoplayer.EntsVideoPlayer;
+import net.minecraft.network.RegistryByteBuf;
+import net.minecraft.network.codec.PacketCodec;
+import net.minecraft.network.codec.PacketCodecs;
+import net.minecraft.network.packet.CustomPayload;
+import net.minecraft.util.Identifier;
+
+public record PlayPlaylistPayload(List<String> videoPaths, int type, boolean disableMovement, boolean hideHud) implements CustomPayload {
+    public static final CustomPayload.Id<PlayPlaylistPayload> ID =
+        new CustomPayload.Id<>(Identifier.of(EntsVideoPlayer.MOD_ID, "play_playlist"));
+
+    public static final PacketCodec<RegistryByteBuf, PlayPlaylistPayload> CODEC =
+        PacketCodec.tuple(
+            PacketCodecs.STRING.collect(PacketCodecs.toList()), PlayPlaylistPayload::videoPaths,
+            PacketCodecs.INTEGER, PlayPlaylistPayload::type,
+            PacketCodecs.BOOLEAN, PlayPlaylistPayload::disableMovement,
+            PacketCodecs.BOOLEAN, PlayPlaylistPayload::hideHud,
+            PlayPlaylistPayload::new
+        );
+
+    @Override
+    public CustomPayload.Id<? extends CustomPayload> getId() {
+        return ID;
+    }
+}
@@ -0,0 +1,150 @@
+package net.entsvideoplayer.client;
+
+import net.entsvideoplayer.EntsVideoPlayer;
+
+import org.bytedeco.ffmpeg.avutil.AVFrame;
+import org.bytedeco.ffmpeg.global.avcodec;
+import org.bytedeco.javacv.FFmpegFrameGrabber;
+import org.bytedeco.javacv.FFmpegFrameRecorder;
+import org.bytedeco.javacv.Frame;
+import org.bytedeco.javacv.FrameGrabber;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BakedPlaybackTest {
+    private static final int WIDTH = 64;
+    private static final int HEIGHT = 48;
+    private static final int FRAMES = 12;
+    private static final int FRAME_RATE = 24;
+    private static final int FRAME_BYTES = WIDTH * HEIGHT * VideoPipeline.BYTES_PER_PIXEL;
+
+    @TempDir
+    Path dir;
+
+    private Path clip;
+
+    @BeforeEach
+    void recordClip() throws Exception {
+        clip = dir.resolve("clip.avi");
+        try (FFmpegFrameRecorder recorder = new FFmpegFrameRecorder(clip.toFile(), WIDTH, HEIGHT, 0)) {
+            recorder.setFormat("avi");
+            recorder.setVideoCodec(avcodec.AV_CODEC_ID_MPEG4);
+            recorder.setFrameRate(FRAME_RATE);
+            recorder.start();
+
+            // Flat bands that move each frame: different frames, and RGBA that LZ4 can shrink
+            Frame frame = new Frame(WIDTH, HEIGHT, Frame.DEPTH_UBYTE, 3);
+            ByteBuffer pixels = (ByteBuffer) frame.image[0];
+            for (int i = 0; i < FRAMES; i++) {
+                for (int y = 0; y < HEIGHT; y++) {
+                    byte value = (byte) (((y / 8 + i) % 4) * 64);
+                    for (int x = 0; x < WIDTH * 3; x++) {
+                        pixels.put(y * frame.imageStride + x, value);
+                    }
+                }
+                recorder.record(frame);
+            }
+        }
+    }
+
+    private FFmpegFrameGrabber grabber() {
+        // As VideoPipeline.createGrabber, minus what needs the game's config
+        FFmpegFrameGrabber grabber = new FFmpegFrameGrabber(clip.toString());
+        grabber.setImageMode(FrameGrabber.ImageMode.RAW);
+        return grabber;
+    }
+
+    private static RawFrame rgbaFrame() {
+        RawFrame frame = new RawFrame();
+        frame.buffer = ByteBuffer.allocateDirect(FRAME_BYTES);
+        frame.width = WIDTH;
+        frame.height = HEIGHT;
+        frame.stride = WIDTH * VideoPipeline.BYTES_PER_PIXEL;
+        return frame;
+    }
+
+    private void roundTrip(boolean compress) throws Exception {
+        Path baked = dir.resolve(compress ? "lz4.evpc" : "raw.evpc");
+        assertTrue(CutsceneBaker.bake(grabber(), clip.toString(), baked, WIDTH, HEIGHT, compress));
+
+        // What the FFmpeg path hands the renderer, timed per frame from grab() through convert
+        List<RawFrame> expected = new ArrayList<>();
+        long liveNanos = 0L;
+        FFmpegFrameGrabber grabber = grabber();
+        grabber.start();
+        try (FrameConverter converter = new FrameConverter()) {
+            while (true) {
+                long start = System.nanoTime();
+                Frame frame = grabber.grab();
+                if (frame == null) break;
+                if (frame.image == null || !(frame.opaque instanceof AVFrame picture)) continue;
+                RawFrame rgba = rgbaFrame();
+                converter.convert(picture, rgba);
+                rgba.timestampUs = frame.timestamp;
+                liveNanos += System.nanoTime() - start;
+                expected.add(rgba);
+            }
+        } finally {
+            grabber.stop();
+            grabber.release();
+        }
+        assertEquals(FRAMES, expected.size());
+
+        BakedPlayback playback = BakedPlayback.open(baked);
+        try {
+            assertEquals(WIDTH, playback.getVideoWidth());
+            assertEquals(HEIGHT, playback.getVideoHeight());
+            assertEquals(0, playback.getAudioChannels());
+            assertEquals(FRAME_RATE, playback.getFrameRate(), 0.5);
+            playback.prepare(); // never started: every poll returns the next frame
+
+            long bakedNanos = 0L;
+            for (RawFrame live : expected) {
+                long start = System.nanoTime();
+                RawFrame frame = playback.pollFrame();
+                bakedNanos += System.nanoTime() - start;
+
+                assertNotNull(frame);
+                assertEquals(live.timestampUs, frame.timestampUs);
+                assertEquals(live.buffer, frame.buffer);
+                playback.releaseFrame(frame);
+            }
+            assertNull(playback.pollFrame());
+            assertTrue(playback.isFinished());
+
+            EntsVideoPlayer.LOGGER.info("CPU per frame: {} us FFmpeg path, {} us baked path ({})",
+                    liveNanos / FRAMES / 1000L, bakedNanos / FRAMES / 1000L, compress ? "LZ4" : "raw");
+        } finally {
+            playback.close();
+        }
+
+        long rawSize = BakedPlayback.HEADER_BYTES + (long) FRAMES * (FRAME_BYTES + BakedPlayback.INDEX_ENTRY_BYTES);
+        if (compress) {
+            assertTrue(Files.size(baked) < rawSize);
+        } else {
+            assertEquals(rawSize, Files.size(baked));
+        }
+    }
+
+    @Test
+    void rawBakeReadsBackTheConvertedFrames() throws Exception {
+        roundTrip(false);
+    }
+
+    @Test
+    void lz4BakeReadsBackTheConvertedFrames() throws Exception {
+        roundTrip(true);
+    }
+}
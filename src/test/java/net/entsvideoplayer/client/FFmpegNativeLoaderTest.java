@@ -0,0 +1,226 @@
+package net.entsvideoplayer.client;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FFmpegNativeLoaderTest {
+    private static final int JAR_SIZE = 256 * 1024;
+
+    @TempDir
+    Path dir;
+
+    private final byte[] jar = new byte[JAR_SIZE];
+    private String sha1;
+    // Range header of each jar request, "" when there was none
+    private final List<String> ranges = new CopyOnWriteArrayList<>();
+    // Requests before the server behaves normally
+    private final AtomicInteger truncatedResponses = new AtomicInteger();
+    private final AtomicInteger badChecksums = new AtomicInteger();
+    private volatile boolean ignoreRange = false;
+    // Answer Range requests with 416 and this Content-Range ("" for none); null to serve them
+    private volatile String unsatisfiable = null;
+    private HttpServer server;
+    private FFmpegNativeLoader loader;
+    private FFmpegNativeLoader.Artifact artifact;
+
+    @BeforeEach
+    void startServer() throws Exception {
+        new Random(7).nextBytes(jar);
+        sha1 = hex(MessageDigest.getInstance("SHA-1").digest(jar));
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/lib.jar", this::serveJar);
+        server.createContext("/lib.jar.sha1", this::serveSha1);
+        server.start();
+
+        loader = new FFmpegNativeLoader(dir);
+        artifact = new FFmpegNativeLoader.Artifact("Test", "lib.jar",
+            "http://127.0.0.1:" + server.getAddress().getPort() + "/lib.jar");
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop(0);
+    }
+
+    private void serveJar(HttpExchange exchange) throws IOException {
+        if (exchange.getRequestMethod().equals("HEAD")) {
+            exchange.getResponseHeaders().set("Content-Length", Integer.toString(jar.length));
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+            return;
+        }
+        String range = exchange.getRequestHeaders().getFirst("Range");
+        ranges.add(range != null ? range : "");
+
+        if (range != null && unsatisfiable != null) {
+            if (!unsatisfiable.isEmpty()) exchange.getResponseHeaders().set("Content-Range", unsatisfiable);
+            unsatisfiable = null;
+            exchange.sendResponseHeaders(416, -1);
+            exchange.close();
+            return;
+        }
+
+        int start = 0;
+        if (range != null && !ignoreRange) {
+            start = Integer.parseInt(range.substring("bytes=".length(), range.length() - 1));
+            exchange.getResponseHeaders().set("Content-Range",
+                "bytes " + start + "-" + (jar.length - 1) + "/" + jar.length);
+            exchange.sendResponseHeaders(206, jar.length - start);
+        } else {
+            exchange.sendResponseHeaders(200, jar.length);
+        }
+        OutputStream out = exchange.getResponseBody();
+        try {
+            if (truncatedResponses.getAndDecrement() > 0) {
+                // Connection drops half way through
+                out.write(jar, start, (jar.length - start) / 2);
+                out.flush();
+                throw new IOException("simulated drop");
+            }
+            out.write(jar, start, jar.length - start);
+            out.close();
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void serveSha1(HttpExchange exchange) throws IOException {
+        String hash = badChecksums.getAndDecrement() > 0 ? "0".repeat(40) : sha1;
+        byte[] body = (hash + "  lib.jar\n").getBytes(StandardCharsets.US_ASCII);
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static String hex(byte[] bytes) {
+        StringBuilder out = new StringBuilder();
+        for (byte b : bytes) out.append(String.format("%02x", b));
+        return out.toString();
+    }
+
+    private Path download() {
+        return loader.getOrDownload(artifact, new FFmpegNativeLoader.DownloadProgress(progress -> {}, 100));
+    }
+
+    private void assertDownloaded(Path result) throws IOException {
+        assertEquals(dir.resolve("lib.jar"), result);
+        assertArrayEquals(jar, Files.readAllBytes(result));
+        assertFalse(Files.exists(dir.resolve("lib.jar.part")));
+        assertTrue(Files.readString(dir.resolve("lib.jar.sha1")).startsWith(sha1 + " " + JAR_SIZE + " "));
+    }
+
+    @Test
+    void truncatedDownloadResumesWithRange() throws IOException {
+        truncatedResponses.set(1);
+
+        assertDownloaded(download());
+        assertEquals(List.of("", "bytes=" + JAR_SIZE / 2 + "-"), ranges);
+    }
+
+    @Test
+    void fullResponseToRangeStartsOver() throws IOException {
+        Files.write(dir.resolve("lib.jar.part"), new byte[JAR_SIZE / 3]); // stale bytes
+        ignoreRange = true;
+
+        assertDownloaded(download());
+        assertEquals(List.of("bytes=" + JAR_SIZE / 3 + "-"), ranges);
+    }
+
+    @Test
+    void unsatisfiableRangeKeepsACompletePart() throws IOException {
+        Files.write(dir.resolve("lib.jar.part"), jar);
+        unsatisfiable = "bytes */" + JAR_SIZE;
+
+        assertDownloaded(download());
+        assertEquals(List.of("bytes=" + JAR_SIZE + "-"), ranges);
+    }
+
+    @Test
+    void unsatisfiableRangeRestartsAPartOfTheWrongSize() throws IOException {
+        // The file on the server is shorter than what an earlier attempt left behind
+        byte[] longer = Arrays.copyOf(jar, JAR_SIZE + 100);
+        Files.write(dir.resolve("lib.jar.part"), longer);
+        unsatisfiable = "bytes */" + JAR_SIZE;
+
+        assertDownloaded(download());
+        assertEquals(List.of("bytes=" + (JAR_SIZE + 100) + "-", ""), ranges);
+    }
+
+    @Test
+    void unsatisfiableRangeWithoutLengthChecksWithHead() throws IOException {
+        Files.write(dir.resolve("lib.jar.part"), Arrays.copyOf(jar, JAR_SIZE / 2));
+        unsatisfiable = "";
+
+        assertDownloaded(download());
+        assertEquals(List.of("bytes=" + JAR_SIZE / 2 + "-", ""), ranges);
+    }
+
+    @Test
+    void checksumMismatchDownloadsFromScratch() throws IOException {
+        badChecksums.set(1);
+
+        assertDownloaded(download());
+        // The second attempt must not resume from the rejected bytes
+        assertEquals(List.of("", ""), ranges);
+    }
+
+    @Test
+    void verifiedJarIsReusedWithoutTheNetwork() throws IOException {
+        assertDownloaded(download());
+        server.stop(0);
+
+        assertDownloaded(download());
+        assertEquals(1, ranges.size());
+    }
+
+    @Test
+    void unverifiedJarIsUsedAsIsWhenOffline() throws IOException {
+        Files.write(dir.resolve("lib.jar"), jar);
+        server.stop(0);
+
+        assertEquals(dir.resolve("lib.jar"), download());
+        assertArrayEquals(jar, Files.readAllBytes(dir.resolve("lib.jar")));
+    }
+
+    @Test
+    void missingJarFailsWhenOffline() {
+        server.stop(0);
+
+        assertNull(download());
+        assertFalse(Files.exists(dir.resolve("lib.jar")));
+    }
+
+    @Test
+    void contentRangeTotal() {
+        assertEquals(1234L, FFmpegNativeLoader.rangeTotal("bytes */1234"));
+        assertEquals(1234L, FFmpegNativeLoader.rangeTotal("bytes 0-99/1234"));
+        assertEquals(-1L, FFmpegNativeLoader.rangeTotal("bytes 0-99/*"));
+        assertEquals(-1L, FFmpegNativeLoader.rangeTotal(null));
+    }
+}
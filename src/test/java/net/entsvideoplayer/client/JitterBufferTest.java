@@ -0,0 +1,229 @@
+package net.entsvideoplayer.client;
+
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+class JitterBufferTest {
+    private static final long TARGET_US = 2_000_000L;
+    // 1 MB/s, so 1000 bytes buffered are 1 ms
+    private static final long BITRATE = 8_000_000L;
+
+    private long nowNanos = 0L;
+
+    @TempDir
+    Path dir;
+
+    private static final class FakeInput implements JitterBuffer.Input {
+        long bytesAhead;
+        long totalBytes = 100_000_000L;
+        boolean complete;
+
+        @Override
+        public long bytesAhead() {
+            return bytesAhead;
+        }
+
+        @Override
+        public long totalBytes() {
+            return totalBytes;
+        }
+
+        @Override
+        public boolean isComplete() {
+            return complete;
+        }
+    }
+
+    private JitterBuffer buffer(JitterBuffer.Input input) {
+        JitterBuffer buffer = new JitterBuffer(JitterBuffer.Profile.SMOOTH, TARGET_US, input, () -> nowNanos);
+        buffer.setBitrate(BITRATE, 0L);
+        return buffer;
+    }
+
+    @Test
+    void startsOnlyOnceTheTargetIsBuffered() {
+        JitterBuffer buffer = buffer(null);
+
+        nowNanos = 300_000_000L;
+        assertFalse(buffer.update(TARGET_US - 1, false));
+        assertFalse(buffer.isPlaying());
+
+        nowNanos = 500_000_000L;
+        assertTrue(buffer.update(TARGET_US, false));
+        assertTrue(buffer.isPlaying());
+        assertEquals(500_000_000L, buffer.getStartupNanos());
+    }
+
+    @Test
+    void keepsTheConfiguredTargetWithoutAnInput() {
+        assertEquals(TARGET_US, buffer(null).getTargetUs());
+        assertEquals(3_000_000L, new JitterBuffer(JitterBuffer.Profile.SMOOTH, 3_000_000L, null).getTargetUs());
+    }
+
+    @Test
+    void downloadedBytesCountAtTheBitrate() {
+        FakeInput input = new FakeInput();
+        JitterBuffer buffer = buffer(input);
+
+        input.bytesAhead = 1_499_000L; // 1.499 s
+        assertFalse(buffer.update(500_000L, false));
+
+        input.bytesAhead = 1_500_000L; // 1.5 s + 0.5 s decoded
+        assertTrue(buffer.update(500_000L, false));
+    }
+
+    @Test
+    void bitrateFallsBackToDownloadSizeOverDuration() {
+        FakeInput input = new FakeInput();
+        input.totalBytes = 10_000_000L;
+        JitterBuffer buffer = new JitterBuffer(JitterBuffer.Profile.SMOOTH, TARGET_US, input, () -> nowNanos);
+        buffer.setBitrate(0L, 10_000_000L); // 10 MB over 10 s: 1 MB/s
+
+        input.bytesAhead = 2_000_000L;
+        assertTrue(buffer.update(0L, false));
+    }
+
+    @Test
+    void rebuffersAtTheLowMarkAndResumesAtTheTarget() {
+        JitterBuffer buffer = buffer(null);
+        buffer.update(TARGET_US, false);
+
+        // SMOOTH: low mark is an eighth of the target
+        assertFalse(buffer.update(TARGET_US / 8 + 1, false));
+        assertTrue(buffer.isPlaying());
+
+        nowNanos = 1_000_000_000L;
+        assertTrue(buffer.update(TARGET_US / 8, false));
+        assertFalse(buffer.isPlaying());
+        assertEquals(1, buffer.getUnderruns());
+
+        // Half way back is not enough: no toggling around the low mark
+        nowNanos = 1_200_000_000L;
+        assertFalse(buffer.update(TARGET_US / 2, false));
+        assertFalse(buffer.isPlaying());
+
+        nowNanos = 1_700_000_000L;
+        assertTrue(buffer.update(TARGET_US, false));
+        assertTrue(buffer.isPlaying());
+        assertEquals(700_000_000L, buffer.getRebufferNanos());
+    }
+
+    @Test
+    void liveProfileHasAHigherLowMark() {
+        JitterBuffer buffer = new JitterBuffer(JitterBuffer.Profile.LOW_LATENCY, 600_000L, null, () -> nowNanos);
+        buffer.update(600_000L, false);
+
+        assertFalse(buffer.update(100_001L, false));
+        assertTrue(buffer.update(100_000L, false));
+        assertEquals(1, buffer.getUnderruns());
+    }
+
+    @Test
+    void completeInputNeverRebuffers() {
+        FakeInput input = new FakeInput();
+        JitterBuffer buffer = buffer(input);
+
+        input.complete = true;
+        assertTrue(buffer.update(0L, false));
+        assertFalse(buffer.update(0L, false));
+        assertTrue(buffer.isPlaying());
+        assertEquals(0, buffer.getUnderruns());
+    }
+
+    @Test
+    void finishedDecoderNeverRebuffers() {
+        JitterBuffer buffer = buffer(null);
+        buffer.update(TARGET_US, false);
+
+        assertFalse(buffer.update(0L, true));
+        assertTrue(buffer.isPlaying());
+    }
+
+    @Test
+    void seekRefillsWithoutCountingAnUnderrun() {
+        JitterBuffer buffer = buffer(null);
+        buffer.update(TARGET_US, false);
+
+        nowNanos = 1_000_000_000L;
+        buffer.restart();
+        assertFalse(buffer.isPlaying());
+        assertFalse(buffer.update(TARGET_US / 2, false));
+
+        nowNanos = 1_400_000_000L;
+        assertTrue(buffer.update(TARGET_US, false));
+        assertEquals(0, buffer.getUnderruns());
+        assertEquals(0L, buffer.getRebufferNanos());
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) fail("Timed out");
+            Thread.sleep(5);
+        }
+    }
+
+    @Test
+    void stalledDownloadRebuffersUntilTheServerCatchesUp() throws Exception {
+        // 1 s of media at the bitrate below arrives at once, then the server stalls
+        int burst = 1_000_000;
+        int size = 4 * burst;
+        CountDownLatch stall = new CountDownLatch(1);
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/stream.mp4", exchange -> {
+            exchange.sendResponseHeaders(200, size);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(new byte[burst]);
+                out.flush();
+                stall.await(10, TimeUnit.SECONDS);
+                out.write(new byte[size - burst]);
+            } catch (InterruptedException | IOException ignored) {
+            }
+        });
+        server.start();
+        try {
+            VideoCache cache = new VideoCache(dir, 0L, "http://");
+            VideoCache.Source source = cache.resolve("http://127.0.0.1:" + server.getAddress().getPort() + "/stream.mp4");
+            VideoCache.GrowingFileInputStream decoder = source.download();
+            assertNotNull(decoder);
+            JitterBuffer buffer = new JitterBuffer(JitterBuffer.Profile.SMOOTH, 1_000_000L, decoder);
+            buffer.setBitrate(BITRATE, 0L);
+
+            await(() -> decoder.bytesAhead() == burst);
+            assertTrue(buffer.update(0L, false));
+
+            // The decoder reads through the burst while the server sends nothing more
+            decoder.readNBytes(burst - 100_000);
+            assertTrue(buffer.update(0L, false));
+            assertFalse(buffer.isPlaying());
+            assertEquals(1, buffer.getUnderruns());
+
+            stall.countDown();
+            await(decoder::isComplete);
+            assertTrue(buffer.update(0L, false));
+            assertTrue(buffer.isPlaying());
+            assertEquals(1, buffer.getUnderruns());
+            decoder.close();
+        } finally {
+            stall.countDown();
+            server.stop(0);
+        }
+    }
+}
@@ -0,0 +1,273 @@
+package net.entsvideoplayer.client;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.fail;
+
+class VideoCacheTest {
+    private static final int BODY_SIZE = 1 << 20;
+    private static final long CACHE_BYTES = 16L << 20;
+
+    @TempDir
+    Path dir;
+
+    private final byte[] body = new byte[BODY_SIZE];
+    private final List<String> conditionalRequests = new CopyOnWriteArrayList<>();
+    private volatile String etag = "\"v1\"";
+    // Released by a test to let the server send the second half of a held body
+    private final CountDownLatch holdSecondHalf = new CountDownLatch(1);
+    private HttpServer server;
+    private String base;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        new Random(42).nextBytes(body);
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/video.mp4", this::serveVideo);
+        server.createContext("/held.mp4", this::serveHeld);
+        server.createContext("/chunked.mp4", exchange -> {
+            exchange.sendResponseHeaders(200, 0); // no Content-Length
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.createContext("/live.m3u8", exchange -> {
+            byte[] playlist = "#EXTM3U\n".getBytes();
+            exchange.getResponseHeaders().set("Content-Type", "application/vnd.apple.mpegurl");
+            exchange.sendResponseHeaders(200, playlist.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(playlist);
+            }
+        });
+        server.start();
+        base = "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    @AfterEach
+    void stopServer() {
+        holdSecondHalf.countDown();
+        server.stop(0);
+    }
+
+    private void serveVideo(HttpExchange exchange) throws IOException {
+        String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+        if (ifNoneMatch != null) conditionalRequests.add(ifNoneMatch);
+        exchange.getResponseHeaders().set("ETag", etag);
+        if (etag.equals(ifNoneMatch)) {
+            exchange.sendResponseHeaders(304, -1);
+            exchange.close();
+            return;
+        }
+        exchange.getResponseHeaders().set("Content-Type", "video/mp4");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private void serveHeld(HttpExchange exchange) throws IOException {
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body, 0, body.length / 2);
+            out.flush();
+            holdSecondHalf.await(10, TimeUnit.SECONDS);
+            out.write(body, body.length / 2, body.length / 2);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException ignored) {
+            // the client went away, as the test expects
+        }
+    }
+
+    private VideoCache cache(long maxBytes) {
+        return new VideoCache(dir, maxBytes, "http://");
+    }
+
+    private static byte[] readAll(VideoCache.Source source) throws IOException {
+        if (source.file() != null) return Files.readAllBytes(source.file());
+        try (InputStream in = source.download()) {
+            return in.readAllBytes();
+        }
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) fail("Timed out");
+            Thread.sleep(10);
+        }
+    }
+
+    private long partFiles() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(p -> p.toString().endsWith(".part")).count();
+        }
+    }
+
+    @Test
+    void missIsReadWhileDownloadingThenStored() throws Exception {
+        VideoCache cache = cache(CACHE_BYTES);
+        String url = base + "/video.mp4";
+
+        VideoCache.Source miss = cache.resolve(url);
+        assertNull(miss.file());
+        assertNotNull(miss.download());
+        assertEquals(BODY_SIZE, miss.download().totalBytes());
+        assertArrayEquals(body, readAll(miss));
+
+        await(() -> cache.cachedFile(url) != null);
+        assertArrayEquals(body, Files.readAllBytes(cache.cachedFile(url)));
+        assertEquals(0L, partFiles());
+    }
+
+    @Test
+    void hitIsRevalidatedWithTheEtag() throws Exception {
+        VideoCache cache = cache(CACHE_BYTES);
+        String url = base + "/video.mp4";
+        readAll(cache.resolve(url));
+        await(() -> cache.cachedFile(url) != null);
+
+        VideoCache.Source hit = cache.resolve(url);
+        assertNotNull(hit.file());
+        assertArrayEquals(body, readAll(hit));
+        assertEquals(List.of("\"v1\""), conditionalRequests);
+    }
+
+    @Test
+    void changedEtagDownloadsAgain() throws Exception {
+        VideoCache cache = cache(CACHE_BYTES);
+        String url = base + "/video.mp4";
+        readAll(cache.resolve(url));
+        await(() -> cache.cachedFile(url) != null);
+
+        etag = "\"v2\"";
+        VideoCache.Source changed = cache.resolve(url);
+        assertNotNull(changed.download());
+        assertArrayEquals(body, readAll(changed));
+    }
+
+    @Test
+    void cachedCopyIsUsedWhenTheServerIsDown() throws Exception {
+        VideoCache cache = cache(CACHE_BYTES);
+        String url = base + "/video.mp4";
+        readAll(cache.resolve(url));
+        await(() -> cache.cachedFile(url) != null);
+
+        server.stop(0);
+        VideoCache.Source offline = cache.resolve(url);
+        assertNotNull(offline.file());
+        assertArrayEquals(body, readAll(offline));
+    }
+
+    @Test
+    void tooLargeForTheCacheIsBufferedThenDeleted() throws Exception {
+        VideoCache cache = cache(BODY_SIZE); // only files up to half the cap are kept
+        String url = base + "/video.mp4";
+
+        VideoCache.Source source = cache.resolve(url);
+        assertNotNull(source.download());
+        assertArrayEquals(body, readAll(source));
+
+        await(() -> {
+            try {
+                return partFiles() == 0L;
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        assertNull(cache.cachedFile(url));
+    }
+
+    @Test
+    void disabledCacheStillBuffers() throws Exception {
+        VideoCache cache = cache(0L);
+        String url = base + "/video.mp4";
+
+        VideoCache.Source source = cache.resolve(url);
+        assertNotNull(source.download());
+        assertArrayEquals(body, readAll(source));
+        assertNull(cache.cachedFile(url));
+    }
+
+    @Test
+    void closingATemporaryDownloadStopsIt() throws Exception {
+        VideoCache cache = cache(0L);
+        VideoCache.Source source = cache.resolve(base + "/held.mp4");
+        VideoCache.GrowingFileInputStream in = source.download();
+        assertNotNull(in);
+
+        await(() -> in.bytesAhead() == BODY_SIZE / 2);
+        assertFalse(in.isComplete());
+        in.readNBytes(BODY_SIZE / 4);
+        assertEquals(BODY_SIZE / 4, in.bytesAhead());
+
+        in.close();
+        holdSecondHalf.countDown();
+        await(() -> {
+            try {
+                return partFiles() == 0L;
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+    }
+
+    @Test
+    void unknownLengthAndPlaylistsAreLeftToFfmpeg() {
+        VideoCache cache = cache(CACHE_BYTES);
+
+        assertSame(VideoCache.Source.NETWORK, cache.resolve(base + "/chunked.mp4"));
+        assertSame(VideoCache.Source.NETWORK, cache.resolve(base + "/live.m3u8"));
+        assertNull(cache.cachedFile(base + "/chunked.mp4"));
+    }
+
+    @Test
+    void downloadStoredBeforeResolveReturnsIsStillRead() throws Exception {
+        // Each download runs to the end, into the cache, before resolve() returns: the reader must
+        // already have the file open
+        VideoCache cache = new VideoCache(dir, CACHE_BYTES, "http://", Runnable::run);
+        String url = base + "/video.mp4";
+
+        VideoCache.Source source = cache.resolve(url);
+        assertNotNull(source.download());
+        assertNotNull(cache.cachedFile(url));
+        assertArrayEquals(body, readAll(source));
+    }
+
+    @Test
+    void temporaryDownloadFinishedBeforeReadIsStillReadThenDeleted() throws Exception {
+        VideoCache cache = new VideoCache(dir, 0L, "http://", Runnable::run);
+
+        VideoCache.Source source = cache.resolve(base + "/video.mp4");
+        assertNotNull(source.download());
+        assertArrayEquals(body, readAll(source));
+        assertEquals(0L, partFiles());
+    }
+}